@@ -0,0 +1,142 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+package artnet4j.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import artnet4j.packets.ByteCodec;
+import artnet4j.packets.PacketType;
+
+/**
+ * Accessors of {@link ByteCodec} on heap and direct buffers, to be compared
+ * with {@link ByteUtilsBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteCodecBenchmark
+{
+
+    @Param({ "heap", "direct" })
+    public String buffer;
+
+    private ByteCodec codec;
+    private byte[] chunk;
+    private int offset;
+
+
+    @Benchmark
+    public byte[] getByteChunk()
+    {
+        return codec.getByteChunk(chunk, 18, chunk.length);
+    }
+
+
+    @Benchmark
+    public int getInt16()
+    {
+        return codec.getInt16(nextOffset());
+    }
+
+
+    @Benchmark
+    public int getInt16LE()
+    {
+        return codec.getInt16LE(nextOffset());
+    }
+
+
+    @Benchmark
+    public int getInt32()
+    {
+        return codec.getInt32(nextOffset());
+    }
+
+
+    @Benchmark
+    public int getInt8()
+    {
+        return codec.getInt8(nextOffset());
+    }
+
+
+    @Benchmark
+    public String hex()
+    {
+        return ByteCodec.hex(offset++, 4);
+    }
+
+
+    @Benchmark
+    public boolean isHeader()
+    {
+        return codec.isHeader(0);
+    }
+
+
+    private int nextOffset()
+    {
+        offset = (offset + 2) & 0x1fc;
+        return offset;
+    }
+
+
+    @Benchmark
+    public void setInt16()
+    {
+        codec.setInt16(offset, nextOffset());
+    }
+
+
+    @Benchmark
+    public void setInt16LE()
+    {
+        codec.setInt16LE(offset, nextOffset());
+    }
+
+
+    @Setup
+    public void setup()
+    {
+        byte[] data = Datagrams.create(PacketType.ART_OUTPUT);
+        if ("direct".equals(buffer))
+        {
+            ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+            direct.put(data).flip();
+            codec = new ByteCodec(direct);
+        }
+        else
+        {
+            codec = new ByteCodec(data);
+        }
+        chunk = new byte[512];
+    }
+}
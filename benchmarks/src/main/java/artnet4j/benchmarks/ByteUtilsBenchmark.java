@@ -0,0 +1,118 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import artnet4j.packets.ByteUtils;
+
+/**
+ * Primitive accessors of {@link ByteUtils}, the basis of all packet encoding
+ * and decoding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteUtilsBenchmark
+{
+
+    private ByteUtils bytes;
+    private byte[] chunk;
+    private int offset;
+
+
+    @Benchmark
+    public byte[] getByteChunk()
+    {
+        return bytes.getByteChunk(chunk, 18, chunk.length);
+    }
+
+
+    @Benchmark
+    public int getInt16()
+    {
+        return bytes.getInt16(nextOffset());
+    }
+
+
+    @Benchmark
+    public int getInt16LE()
+    {
+        return bytes.getInt16LE(nextOffset());
+    }
+
+
+    @Benchmark
+    public int getInt8()
+    {
+        return bytes.getInt8(nextOffset());
+    }
+
+
+    private int nextOffset()
+    {
+        offset = (offset + 2) & 0x1fe;
+        return offset;
+    }
+
+
+    @Benchmark
+    public String hex()
+    {
+        return ByteUtils.hex(offset++, 4);
+    }
+
+
+    @Benchmark
+    public void setInt16()
+    {
+        bytes.setInt16(offset, nextOffset());
+    }
+
+
+    @Benchmark
+    public void setInt16LE()
+    {
+        bytes.setInt16LE(offset, nextOffset());
+    }
+
+
+    @Setup
+    public void setup()
+    {
+        byte[] data = new byte[530];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) i;
+        }
+        bytes = new ByteUtils(data);
+        chunk = new byte[512];
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.benchmarks;
+
+import artnet4j.packets.AbstractArtNetPacket;
+import artnet4j.packets.ArtDmxPacket;
+import artnet4j.packets.ArtPollPacket;
+import artnet4j.packets.ArtSyncPacket;
+import artnet4j.packets.PacketType;
+
+/**
+ * Wire representations of the supported packet types, used as benchmark
+ * input.
+ */
+public final class Datagrams
+{
+
+    /*
+     * Static methods
+     */
+
+    /**
+     * @param type
+     * @return datagram bytes of a typical packet of the given type
+     */
+    public static byte[] create(PacketType type)
+    {
+        switch (type)
+        {
+            case ART_POLL:
+                return toBytes(new ArtPollPacket());
+            case ART_POLL_REPLY:
+                return pollReply();
+            case ART_OUTPUT:
+                ArtDmxPacket dmx = new ArtDmxPacket();
+                byte[] data = new byte[512];
+                for (int i = 0; i < data.length; i++)
+                {
+                    data[i] = (byte) i;
+                }
+                dmx.setUniverse(0, 1, 2);
+                dmx.setSequenceID(1);
+                dmx.setDMX(data, data.length);
+                return toBytes(dmx);
+            case ART_SYNC:
+                return toBytes(new ArtSyncPacket());
+            default:
+                throw new IllegalArgumentException("unsupported type: " + type);
+        }
+    }
+
+
+    /**
+     * @return an ArtPollReply of a node with four output ports
+     */
+    public static byte[] pollReply()
+    {
+        byte[] raw = new byte[239];
+        System.arraycopy(AbstractArtNetPacket.HEADER, 0, raw, 0, 8);
+        raw[8] = (byte) (PacketType.ART_POLL_REPLY.opCode & 0xff);
+        raw[9] = (byte) (PacketType.ART_POLL_REPLY.opCode >> 8);
+        raw[10] = 10;
+        raw[13] = 42;
+        raw[14] = 0x36;
+        raw[15] = 0x19;
+        raw[19] = 1;
+        byte[] shortName = "bench node".getBytes();
+        System.arraycopy(shortName, 0, raw, 26, shortName.length);
+        byte[] longName = "artnet4j benchmark node".getBytes();
+        System.arraycopy(longName, 0, raw, 44, longName.length);
+        byte[] report = "#0001 [0000] ok".getBytes();
+        System.arraycopy(report, 0, raw, 108, report.length);
+        raw[173] = 4;
+        for (int i = 0; i < 4; i++)
+        {
+            raw[174 + i] = (byte) 0x80;
+            raw[190 + i] = (byte) i;
+        }
+        return raw;
+    }
+
+
+    private static byte[] toBytes(AbstractArtNetPacket packet)
+    {
+        byte[] raw = new byte[packet.getLength()];
+        System.arraycopy(packet.getData(), 0, raw, 0, raw.length);
+        return raw;
+    }
+
+
+    private Datagrams()
+    {
+    }
+}
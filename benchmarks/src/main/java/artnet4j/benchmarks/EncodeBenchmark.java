@@ -0,0 +1,89 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import artnet4j.ArtNetNode;
+import artnet4j.DmxUniverse;
+import artnet4j.DmxUniverseConfig;
+import artnet4j.packets.ArtDmxPacket;
+
+/**
+ * Encoding of a full 512 channel universe into an ArtDmx packet, allocating
+ * a new packet per frame versus reusing the universe's frame packet.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodeBenchmark
+{
+
+    private DmxUniverse universe;
+    private int sequence;
+
+
+    @Benchmark
+    public ArtDmxPacket getFramePacket()
+    {
+        universe.setChannel(0, sequence);
+        return universe.getFramePacket(nextSequence());
+    }
+
+
+    @Benchmark
+    public ArtDmxPacket getPacket()
+    {
+        universe.setChannel(0, sequence);
+        return universe.getPacket(nextSequence());
+    }
+
+
+    private int nextSequence()
+    {
+        sequence = sequence % 255 + 1;
+        return sequence;
+    }
+
+
+    @Setup
+    public void setup()
+    {
+        DmxUniverseConfig config = new DmxUniverseConfig();
+        config.id = "bench";
+        config.universeID = 1;
+        config.numDmxChannels = 512;
+        universe = new DmxUniverse(new ArtNetNode(), config);
+        for (int i = 0; i < 512; i++)
+        {
+            universe.setChannel(i, i);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.benchmarks;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import artnet4j.ArtNetChannelServer;
+import artnet4j.ArtNetServer;
+import artnet4j.ArtNetServerConfig;
+import artnet4j.events.ArtNetServerEventAdapter;
+import artnet4j.packets.AbstractArtNetPacket;
+import artnet4j.packets.ArtDmxPacket;
+import artnet4j.packets.PacketType;
+
+/**
+ * End-to-end throughput of ArtDmx packets sent from one server to another
+ * over the loopback interface. At most {@link #WINDOW} packets are in flight,
+ * so the sender can't simply overrun the receiver; packets the kernel drops
+ * anyway are counted and reported at the end of the trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoopbackBenchmark
+{
+
+    public static final int WINDOW = 64;
+
+    private static final int RECEIVE_PORT = 16454;
+    private static final int SEND_PORT = 16455;
+    private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Param({ "socket", "channel" })
+    public String engine;
+
+    @Param({ "0", "16" })
+    public int packetPoolSize;
+
+    private ArtNetServer receiver;
+    private ArtNetServer sender;
+    private InetAddress loopback;
+    private ArtDmxPacket packet;
+
+    private final AtomicLong numReceived = new AtomicLong();
+    private long numSent;
+    private long numLost;
+
+
+    private void awaitReceiver()
+    {
+        long deadline = System.nanoTime() + WAIT_NANOS;
+        while (numReceived.get() < numSent && System.nanoTime() < deadline)
+        {
+            Thread.yield();
+        }
+        long received = numReceived.get();
+        numLost += numSent - received;
+        numSent = received;
+    }
+
+
+    private ArtNetServer createServer(int port, int sendPort)
+    {
+        ArtNetServer server = "channel".equals(engine)
+                ? new ArtNetChannelServer(port, sendPort)
+                : new ArtNetServer(port, sendPort);
+        ArtNetServerConfig config = new ArtNetServerConfig();
+        config.socketReceiveBufferSize = 4 << 20;
+        config.packetPoolSize = packetPoolSize;
+        server.setConfig(config);
+        return server;
+    }
+
+
+    @Benchmark
+    public long sendReceive()
+    {
+        sender.unicastPacket(packet, loopback);
+        numSent++;
+        if (numSent - numReceived.get() > WINDOW)
+        {
+            awaitReceiver();
+        }
+        return numSent;
+    }
+
+
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        loopback = InetAddress.getByName("127.0.0.1");
+        packet = new ArtDmxPacket();
+        packet.setUniverse(0, 0, 1);
+        packet.setDMX(new byte[512], 512);
+
+        receiver = createServer(RECEIVE_PORT, RECEIVE_PORT);
+        receiver.addListener(new ArtNetServerEventAdapter()
+        {
+
+            @Override
+            public void artNetPacketReceived(AbstractArtNetPacket p)
+            {
+                if (p.getType() == PacketType.ART_OUTPUT)
+                {
+                    numReceived.incrementAndGet();
+                }
+            }
+        });
+        receiver.start(loopback);
+        sender = createServer(SEND_PORT, RECEIVE_PORT);
+        sender.start(loopback);
+    }
+
+
+    @TearDown
+    public void tearDown()
+            throws IOException
+    {
+        awaitReceiver();
+        System.out.println("\nlost packets: " + numLost);
+        receiver.stop();
+        sender.stop();
+        // blocking sockets only notice the stop with the next datagram
+        DatagramSocket socket = new DatagramSocket();
+        byte[] wakeUp = packet.getData();
+        socket.send(new DatagramPacket(wakeUp, packet.getLength(), loopback,
+                RECEIVE_PORT));
+        socket.send(new DatagramPacket(wakeUp, packet.getLength(), loopback,
+                SEND_PORT));
+        socket.close();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import artnet4j.packets.AbstractArtNetPacket;
+import artnet4j.packets.ArtNetPacketParser;
+import artnet4j.packets.PacketPool;
+import artnet4j.packets.PacketType;
+
+/**
+ * Parsing of received datagrams per OpCode, from a heap array as done by
+ * {@link artnet4j.ArtNetServer}, from a direct buffer as done by
+ * {@link artnet4j.ArtNetChannelServer} and into pooled packets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark
+{
+
+    @Param({ "ART_POLL", "ART_POLL_REPLY", "ART_OUTPUT", "ART_SYNC" })
+    public PacketType type;
+
+    private byte[] raw;
+    private ByteBuffer direct;
+    private byte[] receiveArray;
+    private PacketPool pool;
+
+
+    @Benchmark
+    public AbstractArtNetPacket parseArray()
+    {
+        return ArtNetPacketParser.parse(raw, 0, raw.length);
+    }
+
+
+    @Benchmark
+    public AbstractArtNetPacket parseDirectBuffer()
+    {
+        return ArtNetPacketParser.parse(direct, receiveArray);
+    }
+
+
+    @Benchmark
+    public int parsePooled()
+    {
+        AbstractArtNetPacket packet = ArtNetPacketParser.parse(direct, pool);
+        int length = packet.getLength();
+        packet.release();
+        return length;
+    }
+
+
+    @Setup
+    public void setup()
+    {
+        raw = Datagrams.create(type);
+        direct = ByteBuffer.allocateDirect(2048);
+        direct.put(raw).flip();
+        receiveArray = new byte[2048];
+        pool = new PacketPool(PacketPool.DEFAULT_SIZE, 2048);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import artnet4j.ArtNetNode;
+import artnet4j.packets.ArtPollReplyPacket;
+
+/**
+ * Parsing of ArtPollReply packets as received during discovery, with and
+ * without decoding the names, and the update of a node from a reply.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PollReplyBenchmark
+{
+
+    private byte[] raw;
+    private ArtPollReplyPacket reply;
+    private ArtNetNode node;
+
+
+    @Benchmark
+    public ArtNetNode extractConfig()
+    {
+        reply.parse(raw);
+        node.extractConfig(reply);
+        return node;
+    }
+
+
+    @Benchmark
+    public ArtPollReplyPacket parseNew()
+    {
+        ArtPollReplyPacket packet = new ArtPollReplyPacket();
+        packet.parse(raw);
+        return packet;
+    }
+
+
+    @Benchmark
+    public ArtPollReplyPacket parseReused()
+    {
+        reply.parse(raw);
+        return reply;
+    }
+
+
+    @Benchmark
+    public void parseWithNames(Blackhole bh)
+    {
+        reply.parse(raw);
+        bh.consume(reply.getShortName());
+        bh.consume(reply.getLongName());
+        bh.consume(reply.getReportCode());
+        bh.consume(reply.getPorts());
+    }
+
+
+    @Setup
+    public void setup()
+    {
+        raw = Datagrams.pollReply();
+        reply = new ArtPollReplyPacket();
+        node = new ArtNetNode();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import artnet4j.events.ArtDmxListener;
+import artnet4j.packets.ArtDmxPacket;
+
+/**
+ * Routes received ArtDmx packets to the listeners subscribed to their
+ * Port-Address. Subscriptions are kept in a flat table indexed by the 15 bit
+ * Port-Address, holding an immutable listener array per address, so
+ * dispatching a packet costs one array access plus one call per interested
+ * listener, no matter how many listeners and universes there are in total.
+ */
+public class ArtDmxRouter
+{
+
+    private static final ArtDmxListener[] NO_LISTENERS = new ArtDmxListener[0];
+
+    protected final PortAddressIndex<ArtDmxListener[]> routes =
+            new PortAddressIndex<ArtDmxListener[]>();
+
+
+    /* Static methods */
+
+    private static void checkRange(int fromAddress, int toAddress)
+    {
+        if (fromAddress < 0 || toAddress >= PortAddress.NUM_ADDRESSES
+                || fromAddress > toAddress)
+        {
+            throw new IllegalArgumentException("invalid Port-Address range: "
+                    + fromAddress + ".." + toAddress);
+        }
+    }
+
+
+    private static int indexOf(ArtDmxListener[] listeners, ArtDmxListener l)
+    {
+        for (int i = 0; i < listeners.length; i++)
+        {
+            if (listeners[i] == l)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Hands the packet to all listeners subscribed to its Port-Address.
+     *
+     * @param packet
+     * @return true, if there was at least one listener
+     */
+    public boolean dispatch(ArtDmxPacket packet)
+    {
+        ArtDmxListener[] listeners = routes.get(packet.getPortAddress());
+        if (listeners == null)
+        {
+            return false;
+        }
+        for (int i = 0; i < listeners.length; i++)
+        {
+            listeners[i].artDmxReceived(packet);
+        }
+        return true;
+    }
+
+
+    /**
+     * @param address
+     * @return true, if any listener is subscribed to the address
+     */
+    public boolean hasListeners(int address)
+    {
+        return routes.get(address) != null;
+    }
+
+
+    /**
+     * @param address
+     *            15 bit Port-Address
+     * @param l
+     */
+    public void subscribe(int address, ArtDmxListener l)
+    {
+        subscribe(address, address, l);
+    }
+
+
+    /**
+     * Subscribes the listener to all Port-Addresses in the given range.
+     * Addresses the listener is already subscribed to are left as they are.
+     *
+     * @param fromAddress
+     *            first address, inclusive
+     * @param toAddress
+     *            last address, inclusive
+     * @param l
+     * @throws IllegalArgumentException
+     *             if the range is empty or not within 0..0x7fff
+     */
+    public synchronized void subscribe(int fromAddress, int toAddress,
+            ArtDmxListener l)
+    {
+        checkRange(fromAddress, toAddress);
+        for (int address = fromAddress; address <= toAddress; address++)
+        {
+            ArtDmxListener[] current = routes.get(address);
+            if (current == null)
+            {
+                current = NO_LISTENERS;
+            }
+            else if (indexOf(current, l) >= 0)
+            {
+                continue;
+            }
+            ArtDmxListener[] updated = new ArtDmxListener[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = l;
+            routes.put(address, updated);
+        }
+    }
+
+
+    /**
+     * Removes the listener from all Port-Addresses.
+     *
+     * @param l
+     */
+    public void unsubscribe(ArtDmxListener l)
+    {
+        unsubscribe(0, PortAddress.NUM_ADDRESSES - 1, l);
+    }
+
+
+    /**
+     * Removes the listener from all Port-Addresses in the given range.
+     *
+     * @param fromAddress
+     *            first address, inclusive
+     * @param toAddress
+     *            last address, inclusive
+     * @param l
+     * @throws IllegalArgumentException
+     *             if the range is empty or not within 0..0x7fff
+     */
+    public synchronized void unsubscribe(int fromAddress, int toAddress,
+            ArtDmxListener l)
+    {
+        checkRange(fromAddress, toAddress);
+        for (int address = fromAddress; address <= toAddress; address++)
+        {
+            ArtDmxListener[] current = routes.get(address);
+            int i = current != null ? indexOf(current, l) : -1;
+            if (i < 0)
+            {
+                continue;
+            }
+            if (current.length == 1)
+            {
+                routes.remove(address);
+            }
+            else
+            {
+                ArtDmxListener[] updated = new ArtDmxListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i,
+                        current.length - i - 1);
+                routes.put(address, updated);
+            }
+        }
+    }
+}
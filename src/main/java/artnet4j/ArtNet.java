@@ -15,13 +15,20 @@
 
 package artnet4j;
 
+import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import artnet4j.events.ArtDmxListener;
 import artnet4j.events.ArtNetServerEventAdapter;
 import artnet4j.events.ArtNetServerListener;
 import artnet4j.packets.AbstractArtNetPacket;
@@ -39,6 +46,7 @@ public class ArtNet
 
     protected ArtNetServer server;
     protected ArtNetNodeDiscovery discovery;
+    protected DmxOutputScheduler outputScheduler;
 
 
     /**
@@ -50,6 +58,36 @@ public class ArtNet
     }
 
 
+    /**
+     * Subscribes the listener to ArtDmx packets received for the given
+     * Port-Address.
+     *
+     * @param portAddress
+     * @param l
+     */
+    public void addDmxListener(int portAddress, ArtDmxListener l)
+    {
+        server.getRouter().subscribe(portAddress, l);
+    }
+
+
+    /**
+     * Subscribes the listener to ArtDmx packets received for a range of
+     * Port-Addresses.
+     *
+     * @param fromAddress
+     *            first address, inclusive
+     * @param toAddress
+     *            last address, inclusive
+     * @param l
+     */
+    public void addDmxListener(int fromAddress, int toAddress,
+            ArtDmxListener l)
+    {
+        server.getRouter().subscribe(fromAddress, toAddress, l);
+    }
+
+
     /**
      * @param l
      */
@@ -81,12 +119,45 @@ public class ArtNet
     }
 
 
+    private ObjectName getObjectName(String type, String name)
+            throws MalformedObjectNameException
+    {
+        return new ObjectName("artnet4j:type=" + type + ",name="
+                + ObjectName.quote(name));
+    }
+
+
+    /**
+     * @return
+     */
+    public DmxOutputScheduler getOutputScheduler()
+    {
+        if (outputScheduler == null)
+        {
+            outputScheduler = new DmxOutputScheduler(this);
+        }
+        return outputScheduler;
+    }
+
+
     /**
      * 
      */
     public void init()
     {
-        server = new ArtNetServer();
+        init(new ArtNetServer());
+    }
+
+
+    /**
+     * Initializes this instance with a custom server, e.g. an
+     * {@link ArtNetChannelServer}.
+     *
+     * @param server
+     */
+    public void init(ArtNetServer server)
+    {
+        this.server = server;
         server.addListener(new ArtNetServerEventAdapter()
         {
 
@@ -118,6 +189,56 @@ public class ArtNet
     }
 
 
+    /**
+     * Registers the server and discovery metrics with the platform MBean
+     * server as "artnet4j:type=Server,name=..." and
+     * "artnet4j:type=Discovery,name=...".
+     *
+     * @param name
+     *            distinguishes several ArtNet instances in one VM
+     * @throws ArtNetException
+     */
+    public void registerMBeans(String name)
+            throws ArtNetException
+    {
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        ObjectName serverName = null;
+        try
+        {
+            serverName = mbeans.registerMBean(server.getMetrics(),
+                    getObjectName("Server", name)).getObjectName();
+            mbeans.registerMBean(getNodeDiscovery().getMetrics(),
+                    getObjectName("Discovery", name));
+        }
+        catch (JMException e)
+        {
+            if (serverName != null)
+            {
+                try
+                {
+                    mbeans.unregisterMBean(serverName);
+                }
+                catch (JMException ue)
+                {
+                    LOG.warn("couldn't unregister {}", serverName, ue);
+                }
+            }
+            throw new ArtNetException("Couldn't register MBeans", e);
+        }
+    }
+
+
+    /**
+     * Removes the listener from all Port-Addresses.
+     *
+     * @param l
+     */
+    public void removeDmxListener(ArtDmxListener l)
+    {
+        server.getRouter().unsubscribe(l);
+    }
+
+
     /**
      * @param l
      */
@@ -127,6 +248,20 @@ public class ArtNet
     }
 
 
+    /**
+     * Sends one frame of the given universes as a single batch.
+     *
+     * @param universes
+     * @param sequenceID
+     * @return number of packets sent
+     * @see ArtNetServer#sendBatch(DmxUniverse[], int, int)
+     */
+    public int sendBatch(DmxUniverse[] universes, int sequenceID)
+    {
+        return server.sendBatch(universes, universes.length, sequenceID);
+    }
+
+
     /**
      * @param ip
      */
@@ -178,11 +313,28 @@ public class ArtNet
     }
 
 
+    /**
+     * Starts sending all universes registered with the output scheduler at its
+     * frame rate.
+     *
+     * @throws ArtNetException
+     */
+    public void startOutput()
+            throws ArtNetException
+    {
+        getOutputScheduler().start();
+    }
+
+
     /**
      * 
      */
     public void stop()
     {
+        if (outputScheduler != null)
+        {
+            outputScheduler.stop();
+        }
         if (discovery != null)
         {
             discovery.stop();
@@ -237,4 +389,32 @@ public class ArtNet
             LOG.error(e.getMessage(), e);
         }
     }
+
+
+    /**
+     * Removes the MBeans registered via {@link #registerMBeans(String)}.
+     *
+     * @param name
+     * @throws ArtNetException
+     */
+    public void unregisterMBeans(String name)
+            throws ArtNetException
+    {
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            for (String type : new String[] { "Server", "Discovery" })
+            {
+                ObjectName objectName = getObjectName(type, name);
+                if (mbeans.isRegistered(objectName))
+                {
+                    mbeans.unregisterMBean(objectName);
+                }
+            }
+        }
+        catch (JMException e)
+        {
+            throw new ArtNetException("Couldn't unregister MBeans", e);
+        }
+    }
 }
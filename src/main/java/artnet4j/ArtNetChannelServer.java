@@ -0,0 +1,452 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import artnet4j.packets.AbstractArtNetPacket;
+
+/**
+ * Art-Net server using a non-blocking {@link DatagramChannel} and a
+ * {@link Selector} instead of a blocking {@link java.net.DatagramSocket}.
+ * Datagrams are received into pooled direct buffers, so the kernel can copy
+ * them without an intermediate heap array. Start, stop and listener handling
+ * are the same as for {@link ArtNetServer}.
+ * <p>
+ * Where the platform supports SO_REUSEPORT (Linux, Java 9+), the server can
+ * open several channels on the same port, each with its own receive thread,
+ * and let the kernel spread incoming datagrams across them. The kernel picks
+ * the channel by the sender's address, so the packets of one sender stay in
+ * order.
+ */
+public class ArtNetChannelServer
+        extends ArtNetServer
+{
+
+    /**
+     * One receiving channel with its selector.
+     */
+    private class Shard
+            implements Runnable
+    {
+
+        final DatagramChannel channel;
+        final Selector selector;
+
+
+        Shard(DatagramChannel channel, Selector selector)
+        {
+            this.channel = channel;
+            this.selector = selector;
+        }
+
+
+        void close()
+        {
+            try
+            {
+                selector.close();
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                LOG.warn(e.getMessage());
+            }
+        }
+
+
+        @Override
+        public void run()
+        {
+            ByteBuffer buffer = bufferPool.acquire();
+            byte[] receiveArray = new byte[buffer.capacity()];
+            try
+            {
+                while (isRunning)
+                {
+                    long waitStart = isLatencyTracking ? System.nanoTime() : 0;
+                    selector.select();
+                    if (waitStart != 0)
+                    {
+                        latency.receiveWait.record(System.nanoTime() - waitStart);
+                    }
+                    selector.selectedKeys().clear();
+                    SocketAddress sender;
+                    while (isRunning
+                            && (sender = channel.receive(buffer)) != null)
+                    {
+                        buffer.flip();
+                        LOG.trace("received new packet");
+                        metrics.recordDatagram(buffer.remaining());
+                        if (pipeline != null)
+                        {
+                            pipeline.offer(buffer,
+                                    ((InetSocketAddress) sender).getAddress());
+                            buffer.clear();
+                            continue;
+                        }
+                        AbstractArtNetPacket packet = parsePacket(buffer,
+                                receiveArray);
+                        if (packet != null)
+                        {
+                            handlePacket(packet,
+                                    ((InetSocketAddress) sender).getAddress());
+                        }
+                        buffer.clear();
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                LOG.warn(e.getMessage(), e);
+            }
+            finally
+            {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArtNetChannelServer.class);
+
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    protected DatagramChannel channel;
+    protected ByteBufferPool bufferPool;
+    protected int numShards = 1;
+
+    private Shard[] shards;
+
+
+    public ArtNetChannelServer()
+    {
+        this(DEFAULT_PORT, DEFAULT_PORT);
+    }
+
+
+    public ArtNetChannelServer(int port, int sendPort)
+    {
+        super(port, sendPort);
+    }
+
+
+    private void close()
+    {
+        if (shards != null)
+        {
+            for (Shard shard : shards)
+            {
+                if (shard != null)
+                {
+                    shard.close();
+                }
+            }
+        }
+    }
+
+
+    /*
+     * Static methods
+     */
+
+    /**
+     * Looks up SO_REUSEPORT by name, since it is only available from Java 9
+     * and only on some platforms.
+     *
+     * @param channel
+     * @return the option or null, if not supported
+     */
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> findReusePortOption(
+            DatagramChannel channel)
+    {
+        for (SocketOption<?> option : channel.supportedOptions())
+        {
+            if ("SO_REUSEPORT".equals(option.name()))
+            {
+                return (SocketOption<Boolean>) option;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * @return the number of receiving channels
+     */
+    public int getNumShards()
+    {
+        return shards != null ? shards.length : numShards;
+    }
+
+
+    private Shard openShard(InetSocketAddress bindAddress, boolean reusePort)
+            throws IOException
+    {
+        DatagramChannel ch = DatagramChannel.open(StandardProtocolFamily.INET);
+        try
+        {
+            ch.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            ch.setOption(StandardSocketOptions.SO_BROADCAST, true);
+            if (config.socketReceiveBufferSize > 0)
+            {
+                ch.setOption(StandardSocketOptions.SO_RCVBUF,
+                        config.socketReceiveBufferSize);
+            }
+            if (config.socketSendBufferSize > 0)
+            {
+                ch.setOption(StandardSocketOptions.SO_SNDBUF,
+                        config.socketSendBufferSize);
+            }
+            if (config.trafficClass >= 0)
+            {
+                ch.setOption(StandardSocketOptions.IP_TOS, config.trafficClass);
+            }
+            if (config.networkInterface != null)
+            {
+                ch.setOption(StandardSocketOptions.IP_MULTICAST_IF,
+                        config.networkInterface);
+            }
+            if (reusePort)
+            {
+                ch.setOption(findReusePortOption(ch), true);
+            }
+            ch.bind(bindAddress);
+            ch.configureBlocking(false);
+            Selector sel = Selector.open();
+            ch.register(sel, SelectionKey.OP_READ);
+            return new Shard(ch, sel);
+        }
+        catch (IOException e)
+        {
+            ch.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Receives on the first channel from this thread and on all further
+     * channels from threads of their own.
+     * 
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run()
+    {
+        Thread[] threads = new Thread[shards.length - 1];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread(shards[i + 1],
+                    "artnet4j-receive-shard-" + (i + 1));
+            threads[i].start();
+        }
+        shards[0].run();
+        try
+        {
+            for (Thread t : threads)
+            {
+                t.join();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            LOG.warn("interrupted while waiting for receive shards");
+        }
+        close();
+        LOG.info("server thread terminated.");
+        notifyServerStopped();
+    }
+
+
+    @Override
+    protected void send(AbstractArtNetPacket ap, InetAddress address)
+            throws IOException
+    {
+        channel.send(ap.getBuffer(), getSocketAddress(address));
+    }
+
+
+    /**
+     * Uses the given pool for receive buffers. Needs to be set before the
+     * server is started.
+     *
+     * @param pool
+     */
+    public void setBufferPool(ByteBufferPool pool)
+    {
+        if (!isRunning)
+        {
+            bufferPool = pool;
+        }
+    }
+
+
+    /**
+     * Sets the number of channels bound to the server port with SO_REUSEPORT,
+     * each with its own receive thread. If the option isn't supported, a
+     * single channel is used. Shards take the place of the receive pipeline,
+     * configured receive workers are ignored with more than one shard. Needs
+     * to be set before the server is started.
+     * <p>
+     * Sharding only spreads unicast traffic. A server bound to the wildcard
+     * address receives broadcasts on the first channel only and binds the
+     * others to the address of the configured network interface, without an
+     * interface a single channel is used. A server bound to a unicast address
+     * doesn't receive broadcasts at all.
+     *
+     * @param numShards
+     */
+    public void setNumShards(int numShards)
+    {
+        if (!isRunning)
+        {
+            this.numShards = Math.max(numShards, 1);
+        }
+    }
+
+
+    @Override
+    public void start(InetAddress networkAddress)
+            throws SocketException, ArtNetException
+    {
+        if (broadCastAddress == null)
+        {
+            setBroadcastAddress(DEFAULT_BROADCAST_IP);
+        }
+        if (channel == null)
+        {
+            if (networkAddress == null)
+            {
+                networkAddress = config.getInterfaceAddress();
+            }
+            InetSocketAddress bindAddress = networkAddress != null
+                    ? new InetSocketAddress(networkAddress, port)
+                    : new InetSocketAddress(port);
+            try
+            {
+                shards = new Shard[numShards];
+                boolean reusePort = false;
+                InetSocketAddress shardAddress = bindAddress;
+                if (numShards > 1)
+                {
+                    DatagramChannel probe = DatagramChannel.open(StandardProtocolFamily.INET);
+                    reusePort = findReusePortOption(probe) != null;
+                    probe.close();
+                    if (!reusePort)
+                    {
+                        LOG.warn("SO_REUSEPORT not supported, using a single channel");
+                        shards = new Shard[1];
+                    }
+                    else if (bindAddress.getAddress().isAnyLocalAddress())
+                    {
+                        // every channel bound to the wildcard address gets
+                        // its own copy of each broadcast, so only the first
+                        // one is, the others share the unicast traffic
+                        InetAddress unicast = config.getInterfaceAddress();
+                        if (unicast != null)
+                        {
+                            shardAddress = new InetSocketAddress(unicast, port);
+                        }
+                        else
+                        {
+                            LOG.warn("multiple channels need an interface address when bound to the wildcard address, using a single channel");
+                            shards = new Shard[1];
+                        }
+                    }
+                }
+                for (int i = 0; i < shards.length; i++)
+                {
+                    shards[i] = openShard(i == 0 ? bindAddress : shardAddress,
+                            reusePort);
+                }
+                channel = shards[0].channel;
+                setLocalAddress(bindAddress.getAddress());
+
+                ArtNetServerConfig effective = new ArtNetServerConfig(config);
+                effective.socketReceiveBufferSize = channel.getOption(StandardSocketOptions.SO_RCVBUF);
+                effective.socketSendBufferSize = channel.getOption(StandardSocketOptions.SO_SNDBUF);
+                effective.trafficClass = channel.getOption(StandardSocketOptions.IP_TOS);
+                setEffectiveConfig(effective);
+            }
+            catch (IOException e)
+            {
+                close();
+                shards = null;
+                throw new ArtNetException("Couldn't open server channel", e);
+            }
+            if (bufferPool == null)
+            {
+                bufferPool = new ByteBufferPool(
+                        DEFAULT_POOL_SIZE * shards.length, receiveBufferSize);
+            }
+
+            LOG.info("Art-Net channel server started at: {}:{} ({} channels)",
+                    bindAddress.getAddress().getHostAddress(), port,
+                    shards.length);
+            notifyServerStarted();
+            createPacketPool();
+            isRunning = true;
+            if (shards.length == 1)
+            {
+                startReceivePipeline();
+            }
+            else if (numReceiveWorkers > 0)
+            {
+                LOG.warn("receive workers are not used with multiple channels");
+            }
+            serverThread = new Thread(this);
+            serverThread.start();
+        }
+        else
+        {
+            throw new ArtNetException(
+                    "Couldn't create server channel, server already running?");
+        }
+    }
+
+
+    /**
+     * Stops the server and wakes up the receive threads, which close the
+     * channels.
+     */
+    @Override
+    public void stop()
+    {
+        super.stop();
+        if (shards != null)
+        {
+            for (Shard shard : shards)
+            {
+                shard.selector.wakeup();
+            }
+        }
+    }
+}
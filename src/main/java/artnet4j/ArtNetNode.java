@@ -16,12 +16,17 @@
 package artnet4j;
 
 import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import artnet4j.packets.ArtPollReplyPacket;
-import artnet4j.packets.ByteUtils;
+import artnet4j.packets.ByteCodec;
 
 public class ArtNetNode
 {
@@ -32,6 +37,7 @@ public class ArtNetNode
 
     private InetAddress ip;
 
+    private int netSwitch;
     private int subSwitch;
 
     private int oemCode;
@@ -47,6 +53,13 @@ public class ArtNetNode
     private byte[] dmxIns;
     private byte[] dmxOuts;
 
+    private byte[] replyData;
+
+    private volatile long lastSeen;
+    private volatile boolean isProvisional;
+
+    private final AtomicInteger configVersion = new AtomicInteger();
+
 
     /**
      * 
@@ -66,23 +79,32 @@ public class ArtNetNode
     }
 
 
+    /**
+     * Counts a change of the node's configuration.
+     */
+    protected void configChanged()
+    {
+        configVersion.incrementAndGet();
+    }
+
+
     /**
      * @param source
+     * @see #updateConfig(ArtPollReplyPacket)
      */
     public void extractConfig(ArtPollReplyPacket source)
     {
-        setIPAddress(source.getIPAddress());
-        subSwitch = source.getSubSwitch();
-        oemCode = source.getOEMCode();
-        nodeStatus = source.getNodeStatus();
-        shortName = source.getShortName();
-        longName = source.getLongName();
-        ports = source.getPorts();
-        numPorts = ports.length;
-        reportCode = source.getReportCode();
-        dmxIns = source.getDmxIns();
-        dmxOuts = source.getDmxOuts();
-        LOG.info("updated node config");
+        updateConfig(source);
+    }
+
+
+    /**
+     * @return counter incremented with every change of the configuration, to
+     *         detect changes without comparing all fields
+     */
+    public int getConfigVersion()
+    {
+        return configVersion.get();
     }
 
 
@@ -113,6 +135,16 @@ public class ArtNetNode
     }
 
 
+    /**
+     * @return {@link System#nanoTime()} of the last reply received from the
+     *         node
+     */
+    public long getLastSeen()
+    {
+        return lastSeen;
+    }
+
+
     /**
      * @return the longName
      */
@@ -122,6 +154,15 @@ public class ArtNetNode
     }
 
 
+    /**
+     * @return the Net part of the node's Port-Addresses
+     */
+    public int getNet()
+    {
+        return netSwitch;
+    }
+
+
     /**
      * @return the nodeStatus
      */
@@ -199,7 +240,73 @@ public class ArtNetNode
      */
     public String getSubNetAsHex()
     {
-        return ByteUtils.hex(subSwitch, 2);
+        return ByteCodec.hex(subSwitch, 2);
+    }
+
+
+    /**
+     * @return true, if the node was loaded from a {@link NodeCache} and hasn't
+     *         replied to a poll yet
+     */
+    public boolean isProvisional()
+    {
+        return isProvisional;
+    }
+
+
+    /**
+     * Checks if the reply is byte for byte the same as the one the config was
+     * last taken from, so it can be skipped without parsing any fields. The
+     * node report counter is left out, since it changes with every reply.
+     * 
+     * @param reply
+     * @return
+     */
+    synchronized boolean isSameReply(ArtPollReplyPacket reply)
+    {
+        byte[] raw = reply.getData();
+        if (replyData == null || raw == null
+                || reply.getLength() != replyData.length)
+        {
+            return false;
+        }
+        int counterEnd = ArtPollReplyPacket.REPORT_COUNTER_OFFSET
+                + ArtPollReplyPacket.REPORT_COUNTER_LENGTH;
+        for (int i = replyData.length - 1; i >= counterEnd; i--)
+        {
+            if (raw[i] != replyData[i])
+            {
+                return false;
+            }
+        }
+        for (int i = ArtPollReplyPacket.REPORT_COUNTER_OFFSET - 1; i >= 0; i--)
+        {
+            if (raw[i] != replyData[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * @param dmxIns
+     */
+    public void setDmxIns(byte[] dmxIns)
+    {
+        this.dmxIns = dmxIns.clone();
+        configChanged();
+    }
+
+
+    /**
+     * @param dmxOuts
+     */
+    public void setDmxOuts(byte[] dmxOuts)
+    {
+        this.dmxOuts = dmxOuts.clone();
+        configChanged();
     }
 
 
@@ -209,6 +316,106 @@ public class ArtNetNode
     public void setIPAddress(InetAddress ip)
     {
         this.ip = ip;
+        configChanged();
+    }
+
+
+    /**
+     * @param lastSeen
+     */
+    void setLastSeen(long lastSeen)
+    {
+        this.lastSeen = lastSeen;
+    }
+
+
+    /**
+     * @param longName
+     */
+    public void setLongName(String longName)
+    {
+        this.longName = longName;
+        configChanged();
+    }
+
+
+    /**
+     * @param isProvisional
+     */
+    void setProvisional(boolean isProvisional)
+    {
+        this.isProvisional = isProvisional;
+    }
+
+
+    /**
+     * @param net
+     */
+    public void setNet(int net)
+    {
+        netSwitch = net & 0x7f;
+        configChanged();
+    }
+
+
+    /**
+     * @param nodeStatus
+     */
+    public void setNodeStatus(int nodeStatus)
+    {
+        this.nodeStatus = nodeStatus;
+        configChanged();
+    }
+
+
+    /**
+     * @param oemCode
+     */
+    public void setOemCode(int oemCode)
+    {
+        this.oemCode = oemCode;
+        configChanged();
+    }
+
+
+    /**
+     * @param ports
+     */
+    public void setPorts(PortDescriptor[] ports)
+    {
+        this.ports = ports.clone();
+        numPorts = ports.length;
+        configChanged();
+    }
+
+
+    /**
+     * @param reportCode
+     */
+    public void setReportCode(NodeReportCode reportCode)
+    {
+        this.reportCode = reportCode;
+        configChanged();
+    }
+
+
+    /**
+     * @param shortName
+     */
+    public void setShortName(String shortName)
+    {
+        this.shortName = shortName;
+        configChanged();
+    }
+
+
+    /**
+     * @param subnet
+     */
+    public void setSubNet(int subnet)
+    {
+        subSwitch = subnet & 0x0f;
+        configChanged();
     }
 
 
@@ -220,7 +427,94 @@ public class ArtNetNode
     public String toString()
     {
         return "node: " + nodeStyle + " " + ip + " " + longName + ", "
-                + numPorts + " ports, subswitch: "
-                + ByteUtils.hex(subSwitch, 2);
+                + numPorts + " ports, net: " + ByteCodec.hex(netSwitch, 2)
+                + " subswitch: " + ByteCodec.hex(subSwitch, 2);
+    }
+
+
+    /**
+     * Takes over the configuration from the reply and remembers its raw bytes
+     * for {@link #isSameReply(ArtPollReplyPacket)}.
+     * 
+     * @param source
+     * @return the fields which changed, empty if none
+     */
+    public synchronized Set<NodeConfigField> updateConfig(
+            ArtPollReplyPacket source)
+    {
+        EnumSet<NodeConfigField> changes = EnumSet.noneOf(NodeConfigField.class);
+        InetAddress sourceIP = source.getIPAddress();
+        if (!Objects.equals(ip, sourceIP))
+        {
+            setIPAddress(sourceIP);
+            changes.add(NodeConfigField.IP_ADDRESS);
+        }
+        if (netSwitch != source.getNetSwitch())
+        {
+            netSwitch = source.getNetSwitch();
+            changes.add(NodeConfigField.NET_SWITCH);
+        }
+        if (subSwitch != source.getSubSwitch())
+        {
+            subSwitch = source.getSubSwitch();
+            changes.add(NodeConfigField.SUB_SWITCH);
+        }
+        if (oemCode != source.getOEMCode())
+        {
+            oemCode = source.getOEMCode();
+            changes.add(NodeConfigField.OEM_CODE);
+        }
+        if (nodeStatus != source.getNodeStatus())
+        {
+            nodeStatus = source.getNodeStatus();
+            changes.add(NodeConfigField.NODE_STATUS);
+        }
+        if (!Objects.equals(shortName, source.getShortName()))
+        {
+            shortName = source.getShortName();
+            changes.add(NodeConfigField.SHORT_NAME);
+        }
+        if (!Objects.equals(longName, source.getLongName()))
+        {
+            longName = source.getLongName();
+            changes.add(NodeConfigField.LONG_NAME);
+        }
+        if (!Arrays.equals(ports, source.getPorts()))
+        {
+            ports = source.getPorts();
+            numPorts = ports.length;
+            changes.add(NodeConfigField.PORTS);
+        }
+        if (reportCode != source.getReportCode())
+        {
+            reportCode = source.getReportCode();
+            changes.add(NodeConfigField.REPORT_CODE);
+        }
+        if (!Arrays.equals(dmxIns, source.getDmxIns()))
+        {
+            dmxIns = source.getDmxIns().clone();
+            changes.add(NodeConfigField.DMX_INS);
+        }
+        if (!Arrays.equals(dmxOuts, source.getDmxOuts()))
+        {
+            dmxOuts = source.getDmxOuts().clone();
+            changes.add(NodeConfigField.DMX_OUTS);
+        }
+        byte[] raw = source.getData();
+        if (raw != null)
+        {
+            int length = source.getLength();
+            if (replyData == null || replyData.length != length)
+            {
+                replyData = new byte[length];
+            }
+            System.arraycopy(raw, 0, replyData, 0, length);
+        }
+        if (!changes.isEmpty())
+        {
+            configChanged();
+            LOG.debug("updated node config: {} {}", ip, changes);
+        }
+        return changes;
     }
 }
@@ -15,10 +15,18 @@
 
 package artnet4j;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,23 +35,89 @@ import artnet4j.events.ArtNetDiscoveryListener;
 import artnet4j.packets.ArtPollPacket;
 import artnet4j.packets.ArtPollReplyPacket;
 
+/**
+ * Discovers nodes by periodically broadcasting an ArtPoll. Nodes are tracked
+ * by their last-seen timestamp, which the receive thread updates for every
+ * reply. Liveness is checked through a deadline queue ordered by last-seen
+ * time, so each check only touches nodes which may have missed the poll
+ * instead of comparing all nodes against a list of replies.
+ * <p>
+ * The poll interval adapts to the network: after a node appeared or was lost
+ * polling restarts at the minimum interval and then doubles with every quiet
+ * cycle up to the configured interval. Each interval is jittered, so several
+ * controllers don't poll in lock step. A node which misses a broadcast poll is
+ * re-polled by unicast and only reported lost after missing the configured
+ * number of polls in a row, so a reply dropped during a reply storm doesn't
+ * make it flap.
+ * <p>
+ * With a cache file set, the nodes of the last run are loaded as provisional
+ * nodes when discovery starts, so output to them can begin right away. The
+ * first poll either confirms them or, without re-polls, expires them. The
+ * cache is rewritten after cycles which changed the known nodes.
+ */
 public class ArtNetNodeDiscovery
         implements Runnable
 {
 
+    /**
+     * Entry of the expiry queue, reused as long as the node is alive.
+     */
+    private static final class Expiry
+            implements Comparable<Expiry>
+    {
+
+        final ArtNetNode node;
+        long lastSeen;
+        int misses;
+
+
+        Expiry(ArtNetNode node)
+        {
+            this.node = node;
+            this.lastSeen = node.getLastSeen();
+        }
+
+
+        @Override
+        public int compareTo(Expiry o)
+        {
+            return Long.signum(lastSeen - o.lastSeen);
+        }
+    }
+
     public static final int POLL_INTERVAL = 10000;
 
+    public static final int MIN_POLL_INTERVAL = 3000;
+
+    public static final int MISS_THRESHOLD = 3;
+
+    public static final double POLL_JITTER = 0.1;
+
     private static final Logger LOG = LoggerFactory.getLogger(ArtNetNodeDiscovery.class);
 
     protected final ArtNet artNet;
     protected ConcurrentHashMap<InetAddress, ArtNetNode> discoveredNodes =
             new ConcurrentHashMap<InetAddress, ArtNetNode>();
-    protected List<ArtNetNode> lastDiscovered = new ArrayList<ArtNetNode>();
-    protected List<ArtNetDiscoveryListener> listeners = new ArrayList<ArtNetDiscoveryListener>();
+    protected final ListenerList<ArtNetDiscoveryListener> listeners =
+            new ListenerList<ArtNetDiscoveryListener>(
+                    new ArtNetDiscoveryListener[0]);
 
-    protected boolean isActive = true;
+    protected final DiscoveryMetrics metrics = new DiscoveryMetrics(this);
+
+    protected volatile boolean isActive = true;
 
     protected long discoveryInterval;
+    protected long minInterval = MIN_POLL_INTERVAL;
+    protected volatile long currentInterval = MIN_POLL_INTERVAL;
+    protected double jitter = POLL_JITTER;
+    protected int missThreshold = MISS_THRESHOLD;
+
+    protected volatile boolean isTopologyChanged;
+    protected volatile boolean isCacheDirty;
+    protected NodeCache cache;
+
+    private final PriorityQueue<Expiry> expiryQueue = new PriorityQueue<Expiry>();
+    private final ArtPollPacket poll = new ArtPollPacket();
 
     private Thread discoveryThread;
 
@@ -63,48 +137,273 @@ public class ArtNetNodeDiscovery
      */
     public void addListener(ArtNetDiscoveryListener l)
     {
-        synchronized (listeners)
+        listeners.add(l);
+    }
+
+
+    /**
+     * Checks all nodes which haven't been seen since the given time. Missing
+     * nodes are re-polled by unicast until they either reply or reach the miss
+     * threshold, in which case they are removed and reported lost. Only queue
+     * entries older than the given time are visited, entries of nodes which
+     * replied meanwhile are moved to their new position.
+     * 
+     * @param seenSince
+     *            {@link System#nanoTime()} of the broadcast poll
+     * @return true, if nodes were lost
+     * @throws InterruptedException
+     */
+    protected boolean checkNodes(long seenSince)
+            throws InterruptedException
+    {
+        List<Expiry> missing = new ArrayList<Expiry>();
+        synchronized (expiryQueue)
+        {
+            Expiry expiry;
+            while ((expiry = expiryQueue.peek()) != null
+                    && expiry.lastSeen - seenSince < 0)
+            {
+                expiryQueue.poll();
+                long lastSeen = expiry.node.getLastSeen();
+                if (lastSeen - seenSince >= 0)
+                {
+                    expiry.lastSeen = lastSeen;
+                    expiry.misses = 0;
+                    expiryQueue.add(expiry);
+                }
+                else
+                {
+                    missing.add(expiry);
+                }
+            }
+        }
+        List<ArtNetNode> lost = new ArrayList<ArtNetNode>();
+        while (!missing.isEmpty() && isActive)
+        {
+            for (Iterator<Expiry> i = missing.iterator(); i.hasNext();)
+            {
+                Expiry expiry = i.next();
+                long lastSeen = expiry.node.getLastSeen();
+                if (lastSeen - expiry.lastSeen > 0)
+                {
+                    i.remove();
+                    expiry.lastSeen = lastSeen;
+                    expiry.misses = 0;
+                    synchronized (expiryQueue)
+                    {
+                        expiryQueue.add(expiry);
+                    }
+                }
+                else if (expiry.node.isProvisional()
+                        || ++expiry.misses >= missThreshold)
+                {
+                    i.remove();
+                    if (discoveredNodes.remove(expiry.node.getIPAddress(),
+                            expiry.node))
+                    {
+                        lost.add(expiry.node);
+                    }
+                }
+                else
+                {
+                    LOG.debug("re-polling node: {}, missed polls: {}",
+                            expiry.node.getIPAddress(), expiry.misses);
+                    artNet.unicastPacket(poll, expiry.node.getIPAddress());
+                    metrics.recordRepoll();
+                }
+            }
+            if (!missing.isEmpty())
+            {
+                pause(ArtNet.ARTPOLL_REPLY_TIMEOUT);
+            }
+        }
+        synchronized (expiryQueue)
+        {
+            expiryQueue.addAll(missing);
+        }
+        if (!lost.isEmpty())
         {
-            listeners.add(l);
+            isCacheDirty = true;
         }
+        for (ArtNetNode node : lost)
+        {
+            LOG.info("lost node: {}", node.getIPAddress());
+            metrics.recordNodeLost();
+            for (ArtNetDiscoveryListener l : listeners.get())
+            {
+                l.discoveredNodeDisconnected(node);
+            }
+        }
+        return !lost.isEmpty();
     }
 
 
     /**
+     * Registers a reply, called from the receive thread. Replies which are
+     * byte for byte the same as the previous one of the node only refresh its
+     * last-seen time, otherwise the config is updated and listeners are told
+     * which fields changed. Replies of the local server are ignored.
+     * 
      * @param reply
      */
     public void discoverNode(ArtPollReplyPacket reply)
     {
         InetAddress nodeIP = reply.getIPAddress();
+        if (artNet != null && artNet.server != null
+                && artNet.server.isOwnReply(nodeIP, reply.getBindIndex()))
+        {
+            return;
+        }
+        metrics.recordReply();
+        long now = System.nanoTime();
         ArtNetNode node = discoveredNodes.get(nodeIP);
         if (node == null)
         {
-            LOG.info("discovered new node: {}", nodeIP);
-            node = reply.getNodeStyle().createNode();
-            node.extractConfig(reply);
-            discoveredNodes.put(nodeIP, node);
-            for (ArtNetDiscoveryListener l : listeners)
+            ArtNetNode newNode = reply.getNodeStyle().createNode();
+            newNode.extractConfig(reply);
+            newNode.setLastSeen(now);
+            node = discoveredNodes.putIfAbsent(nodeIP, newNode);
+            if (node == null)
             {
-                l.discoveredNewNode(node);
+                LOG.info("discovered new node: {}", nodeIP);
+                synchronized (expiryQueue)
+                {
+                    expiryQueue.add(new Expiry(newNode));
+                }
+                isTopologyChanged = true;
+                isCacheDirty = true;
+                metrics.recordNodeDiscovered();
+                for (ArtNetDiscoveryListener l : listeners.get())
+                {
+                    l.discoveredNewNode(newNode);
+                }
+                return;
             }
         }
-        else
+        if (node.isProvisional())
+        {
+            LOG.info("confirmed cached node: {}", nodeIP);
+            node.setProvisional(false);
+            isCacheDirty = true;
+        }
+        if (node.isSameReply(reply))
         {
-            node.extractConfig(reply);
+            node.setLastSeen(now);
+            metrics.recordUnchangedReply();
+            return;
+        }
+        Set<NodeConfigField> changes = node.updateConfig(reply);
+        node.setLastSeen(now);
+        if (!changes.isEmpty())
+        {
+            LOG.info("node config changed: {} {}", nodeIP, changes);
+            isCacheDirty = true;
+            metrics.recordConfigChange();
+            for (ArtNetDiscoveryListener l : listeners.get())
+            {
+                l.discoveredNodeChanged(node, changes);
+            }
         }
-        lastDiscovered.add(node);
     }
 
 
     /**
-     * @param l
+     * @return the node cache or null, if disabled
      */
-    public void removeListener(ArtNetDiscoveryListener l)
+    public NodeCache getCache()
+    {
+        return cache;
+    }
+
+
+    /**
+     * @return the current, adapted poll interval in milliseconds
+     */
+    public long getCurrentInterval()
     {
-        synchronized (listeners)
+        return currentInterval;
+    }
+
+
+    /**
+     * @return the discovery counters
+     */
+    public DiscoveryMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+
+    /**
+     * Adds the nodes of the cache as provisional nodes and announces them to
+     * the listeners as new nodes.
+     */
+    protected void loadCache()
+    {
+        List<ArtNetNode> nodes;
+        try
         {
-            listeners.remove(l);
+            nodes = cache.load();
         }
+        catch (IOException e)
+        {
+            LOG.warn("couldn't load node cache {}: {}", cache.getFile(),
+                    e.getMessage());
+            return;
+        }
+        long now = System.nanoTime();
+        for (ArtNetNode node : nodes)
+        {
+            node.setProvisional(true);
+            node.setLastSeen(now);
+            if (discoveredNodes.putIfAbsent(node.getIPAddress(), node) == null)
+            {
+                synchronized (expiryQueue)
+                {
+                    expiryQueue.add(new Expiry(node));
+                }
+                for (ArtNetDiscoveryListener l : listeners.get())
+                {
+                    l.discoveredNewNode(node);
+                }
+            }
+        }
+        LOG.info("loaded {} cached nodes from {}", nodes.size(),
+                cache.getFile());
+    }
+
+
+    /**
+     * Sleeps for the given time, but returns early once discovery has been
+     * stopped. Unlike an interrupt, waking the thread this way can't close
+     * the channel of a server it's sending on.
+     * 
+     * @param millis
+     * @throws InterruptedException
+     */
+    private void pause(long millis)
+            throws InterruptedException
+    {
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining;
+        while (isActive && (remaining = deadline - System.nanoTime()) > 0)
+        {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+
+    /**
+     * @param l
+     */
+    public void removeListener(ArtNetDiscoveryListener l)
+    {
+        listeners.remove(l);
     }
 
 
@@ -119,35 +418,48 @@ public class ArtNetNodeDiscovery
         {
             while (isActive)
             {
-                lastDiscovered.clear();
-                ArtPollPacket poll = new ArtPollPacket();
+                long pollTime = System.nanoTime();
                 artNet.broadcastPacket(poll);
-                Thread.sleep(ArtNet.ARTPOLL_REPLY_TIMEOUT);
+                metrics.recordPoll();
+                pause(ArtNet.ARTPOLL_REPLY_TIMEOUT);
                 if (isActive)
                 {
-                    synchronized (listeners)
+                    boolean isChanged = checkNodes(pollTime);
+                    if (isTopologyChanged)
+                    {
+                        isTopologyChanged = false;
+                        isChanged = true;
+                    }
+                    for (ArtNetDiscoveryListener l : listeners.get())
                     {
-                        for (ArtNetNode node : discoveredNodes.values())
-                        {
-                            if (!lastDiscovered.contains(node))
-                            {
-                                discoveredNodes.remove(node.getIPAddress());
-                                for (ArtNetDiscoveryListener l : listeners)
-                                {
-                                    l.discoveredNodeDisconnected(node);
-                                }
-                            }
-                        }
-                        for (ArtNetDiscoveryListener l : listeners)
-                        {
-                            l.discoveryCompleted(new ArrayList<ArtNetNode>(
-                                    discoveredNodes.values()));
-                        }
+                        l.discoveryCompleted(new ArrayList<ArtNetNode>(
+                                discoveredNodes.values()));
+                    }
+                    if (isCacheDirty)
+                    {
+                        saveCache();
+                    }
+                    long interval = Math.min(minInterval, discoveryInterval);
+                    if (!isChanged)
+                    {
+                        interval = Math.min(currentInterval * 2,
+                                discoveryInterval);
+                    }
+                    currentInterval = interval;
+                    interval += (long) (interval * jitter
+                            * (2 * ThreadLocalRandom.current().nextDouble() - 1));
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(
+                            System.nanoTime() - pollTime);
+                    if (interval > elapsed)
+                    {
+                        pause(interval - elapsed);
                     }
-                    Thread.sleep(discoveryInterval
-                            - ArtNet.ARTPOLL_REPLY_TIMEOUT);
                 }
             }
+            if (isCacheDirty)
+            {
+                saveCache();
+            }
         }
         catch (InterruptedException e)
         {
@@ -156,8 +468,53 @@ public class ArtNetNodeDiscovery
     }
 
 
+    /**
+     * Writes all confirmed nodes to the cache, if set.
+     */
+    public void saveCache()
+    {
+        if (cache != null)
+        {
+            isCacheDirty = false;
+            List<ArtNetNode> nodes = new ArrayList<ArtNetNode>();
+            for (ArtNetNode node : discoveredNodes.values())
+            {
+                if (!node.isProvisional())
+                {
+                    nodes.add(node);
+                }
+            }
+            try
+            {
+                cache.save(nodes);
+                LOG.debug("saved {} nodes to {}", nodes.size(), cache.getFile());
+            }
+            catch (IOException e)
+            {
+                LOG.warn("couldn't save node cache {}: {}", cache.getFile(),
+                        e.getMessage());
+            }
+        }
+    }
+
+
+    /**
+     * Enables the persistent node cache. Needs to be set before discovery is
+     * started.
+     * 
+     * @param file
+     *            cache file or null to disable
+     */
+    public void setCacheFile(File file)
+    {
+        cache = file != null ? new NodeCache(file) : null;
+    }
+
+
     /**
      * @param interval
+     *            maximum poll interval in milliseconds, used once the network
+     *            is stable
      */
     public void setInterval(int interval)
     {
@@ -165,6 +522,40 @@ public class ArtNetNodeDiscovery
     }
 
 
+    /**
+     * @param jitter
+     *            random deviation of each poll interval as fraction of the
+     *            interval, 0 to disable
+     */
+    public void setJitter(double jitter)
+    {
+        this.jitter = Math.max(0, Math.min(jitter, 0.5));
+    }
+
+
+    /**
+     * @param interval
+     *            poll interval in milliseconds after nodes appeared or were
+     *            lost
+     */
+    public void setMinInterval(int interval)
+    {
+        minInterval = Math.max(interval, ArtNet.ARTPOLL_REPLY_TIMEOUT);
+    }
+
+
+    /**
+     * @param threshold
+     *            number of polls in a row a node may miss before it is
+     *            reported lost, 1 to drop nodes on the first missed broadcast
+     *            poll
+     */
+    public void setMissThreshold(int threshold)
+    {
+        missThreshold = Math.max(threshold, 1);
+    }
+
+
     /**
      * @throws ArtNetException
      */
@@ -173,6 +564,10 @@ public class ArtNetNodeDiscovery
     {
         if (discoveryThread == null)
         {
+            if (cache != null)
+            {
+                loadCache();
+            }
             discoveryThread = new Thread(this);
             discoveryThread.start();
         }
@@ -184,10 +579,16 @@ public class ArtNetNodeDiscovery
 
 
     /**
-     * 
+     * Stops discovery and wakes the discovery thread, so it doesn't wait out
+     * the current poll interval.
      */
     public void stop()
     {
         isActive = false;
+        Thread thread = discoveryThread;
+        if (thread != null)
+        {
+            LockSupport.unpark(thread);
+        }
     }
 }
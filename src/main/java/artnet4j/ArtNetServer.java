@@ -20,18 +20,33 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import artnet4j.events.ArtNetServerListener;
 import artnet4j.packets.AbstractArtNetPacket;
+import artnet4j.packets.ArtDmxPacket;
 import artnet4j.packets.ArtNetPacketParser;
 import artnet4j.packets.ArtPollPacket;
+import artnet4j.packets.ArtPollReplyPacket;
+import artnet4j.packets.ArtSyncPacket;
+import artnet4j.packets.PacketPool;
 import artnet4j.packets.PacketType;
 
 public class ArtNetServer
@@ -45,6 +60,20 @@ public class ArtNetServer
 
     public static final String DEFAULT_BROADCAST_IP = "2.255.255.255";
 
+    /**
+     * Default interval in milliseconds after which unchanged universes are
+     * resent, as recommended by the Art-Net specification.
+     */
+    public static final long DEFAULT_KEEP_ALIVE = 4000;
+
+    /**
+     * Upper bound in milliseconds of the random delay before answering an
+     * ArtPoll, as required by the Art-Net specification.
+     */
+    public static final long MAX_REPLY_DELAY = 1000;
+
+    public static final int OEM_UNKNOWN = 0x00ff;
+
     protected final int port;
     protected final int sendPort;
 
@@ -52,10 +81,41 @@ public class ArtNetServer
     protected InetAddress broadCastAddress;
     protected Thread serverThread;
 
-    protected int receiveBufferSize;
-    protected boolean isRunning;
+    protected ArtNetServerConfig config = new ArtNetServerConfig();
+    protected ArtNetServerConfig effectiveConfig;
+    protected int receiveBufferSize = config.receiveBufferSize;
+    protected volatile boolean isRunning;
+
+    protected int numReceiveWorkers;
+    protected ReceivePipeline pipeline;
+    protected PacketPool packetPool;
+
+    protected final ListenerList<ArtNetServerListener> listeners;
+    protected final ArtDmxRouter router = new ArtDmxRouter();
+
+    protected final ConcurrentHashMap<InetAddress, InetSocketAddress> socketAddresses =
+            new ConcurrentHashMap<InetAddress, InetSocketAddress>();
+
+    protected final BatchStats batchStats = new BatchStats();
+    protected final ServerMetrics metrics = new ServerMetrics();
+    protected final ReceiveLatency latency = new ReceiveLatency();
+    protected volatile boolean isLatencyTracking;
+    protected long keepAliveInterval = TimeUnit.MILLISECONDS.toNanos(DEFAULT_KEEP_ALIVE);
+    protected boolean isSyncOutput;
+    protected final ArtSyncPacket syncPacket = new ArtSyncPacket();
+
+    protected long maxReplyDelay = MAX_REPLY_DELAY;
+    protected int bindIndex = 1;
+    protected byte[] macAddress = new byte[6];
+    protected volatile Set<InetAddress> localAddresses = Collections.emptySet();
+    protected ScheduledExecutorService replyScheduler;
 
-    protected final List<ArtNetServerListener> listeners;
+    private final DatagramPacket sendPacket = new DatagramPacket(new byte[0], 0);
+
+    private final ArtPollReplyPacket pollReply = new ArtPollReplyPacket();
+    private final Set<InetAddress> pendingReplies = ConcurrentHashMap.newKeySet();
+    private int pollReplyVersion = -1;
+    private int numPollReplies;
 
 
     public ArtNetServer()
@@ -69,17 +129,21 @@ public class ArtNetServer
         super(NodeStyle.ST_SERVER);
         this.port = port;
         this.sendPort = sendPort;
-        this.listeners = new ArrayList<ArtNetServerListener>();
-        setBufferSize(2048);
+        this.listeners = new ListenerList<ArtNetServerListener>(
+                new ArtNetServerListener[0]);
+        setShortName("artnet4j");
+        setLongName("artnet4j Art-Net controller");
+        setOemCode(OEM_UNKNOWN);
+        setReportCode(NodeReportCode.RcPowerOk);
+        setPorts(new PortDescriptor[0]);
+        setDmxIns(new byte[4]);
+        setDmxOuts(new byte[4]);
     }
 
 
     public void addListener(ArtNetServerListener l)
     {
-        synchronized (listeners)
-        {
-            listeners.add(l);
-        }
+        listeners.add(l);
     }
 
 
@@ -87,30 +151,443 @@ public class ArtNetServer
     {
         try
         {
-            DatagramPacket packet = new DatagramPacket(ap.getData(), ap
-                    .getLength(), broadCastAddress, sendPort);
-            socket.send(packet);
-            for (ArtNetServerListener l : listeners)
+            send(ap, broadCastAddress);
+            metrics.recordSent(ap);
+            for (ArtNetServerListener l : listeners.get())
             {
                 l.artNetPacketBroadcasted(ap);
             }
         }
         catch (IOException e)
         {
+            metrics.recordSendError();
             LOG.warn(e.getMessage());
         }
     }
 
 
-    public void removeListener(ArtNetServerListener l)
+    /**
+     * Creates the packet pool if enabled in the config. Needs to be called by
+     * receive engines before setting {@link #isRunning}.
+     */
+    protected void createPacketPool()
+    {
+        packetPool = config.packetPoolSize > 0
+                ? new PacketPool(config.packetPoolSize, receiveBufferSize)
+                : null;
+    }
+
+
+    /**
+     * Writes the server's self description into the given reply.
+     *
+     * @param reply
+     */
+    protected void encodePollReply(ArtPollReplyPacket reply)
+    {
+        if (getIPAddress() != null)
+        {
+            reply.setIPAddress(getIPAddress());
+        }
+        reply.setNetSwitch(getNet());
+        reply.setSubSwitch(getSubNet());
+        reply.setOEMCode(getOemCode());
+        reply.setNodeStatus(getNodeStatus());
+        reply.setShortName(getShortName());
+        reply.setLongName(getLongName());
+        reply.setReportCode(getReportCode());
+        reply.setPorts(getPorts());
+        reply.setDmxIns(getDmxIns());
+        reply.setDmxOuts(getDmxOuts());
+        reply.setNodeStyle(getNodeStyle());
+        reply.setMacAddress(macAddress);
+        reply.setBindIndex(bindIndex);
+        reply.setStatus2(0x08);
+    }
+
+
+    /**
+     * @return timing of batches sent via
+     *         {@link #sendBatch(DmxUniverse[], int, int)}
+     */
+    public BatchStats getBatchStats()
+    {
+        return batchStats;
+    }
+
+
+    /**
+     * @return the configured socket and buffer settings
+     */
+    public ArtNetServerConfig getConfig()
+    {
+        return config;
+    }
+
+
+    /**
+     * @return the settings applied by the OS after binding or null, if the
+     *         server hasn't been started
+     */
+    public ArtNetServerConfig getEffectiveConfig()
+    {
+        return effectiveConfig;
+    }
+
+
+    /**
+     * @return all addresses of the local network interfaces
+     */
+    private Set<InetAddress> getInterfaceAddresses()
+    {
+        Set<InetAddress> addresses = new HashSet<InetAddress>();
+        try
+        {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces != null && interfaces.hasMoreElements())
+            {
+                addresses.addAll(Collections.list(
+                        interfaces.nextElement().getInetAddresses()));
+            }
+        }
+        catch (SocketException e)
+        {
+            LOG.warn("couldn't list local addresses: {}", e.getMessage());
+        }
+        return addresses;
+    }
+
+
+    /**
+     * @return latency histograms of the receive path, only recorded while
+     *         tracking is enabled
+     * @see #setLatencyTracking(boolean)
+     */
+    public ReceiveLatency getLatency()
+    {
+        return latency;
+    }
+
+
+    /**
+     * Looks up the MAC address of the interface holding the given address.
+     *
+     * @param address
+     *            a local address
+     * @return the MAC address or null, if unknown
+     */
+    protected byte[] getMacAddress(InetAddress address)
+    {
+        try
+        {
+            NetworkInterface ni = NetworkInterface.getByInetAddress(address);
+            return ni != null ? ni.getHardwareAddress() : null;
+        }
+        catch (SocketException e)
+        {
+            LOG.debug("couldn't look up MAC address of: {}", address);
+            return null;
+        }
+    }
+
+
+    /**
+     * @return traffic counters of this server
+     */
+    public ServerMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+
+    /**
+     * @return the pool received packets are recycled through or null, if
+     *         pooling is disabled
+     */
+    public PacketPool getPacketPool()
+    {
+        return packetPool;
+    }
+
+
+    /**
+     * Returns the pre-encoded ArtPollReply describing this server. It is only
+     * re-encoded if the configuration changed since it was last used, only
+     * the report counter is updated for every reply. If the server is bound to
+     * the wildcard address, the IP and MAC address of the interface routing
+     * to the poll's sender are filled in for each reply.
+     *
+     * @param sender
+     *            the sender of the poll being answered
+     * @return
+     */
+    protected ArtPollReplyPacket getPollReply(InetAddress sender)
+    {
+        synchronized (pollReply)
+        {
+            int version = getConfigVersion();
+            if (version != pollReplyVersion)
+            {
+                encodePollReply(pollReply);
+                pollReplyVersion = version;
+            }
+            if (getIPAddress() == null)
+            {
+                InetAddress local = getRouteAddress(sender);
+                if (local != null)
+                {
+                    pollReply.setIPAddress(local);
+                    byte[] mac = getMacAddress(local);
+                    pollReply.setMacAddress(mac != null ? mac : macAddress);
+                }
+            }
+            numPollReplies = (numPollReplies + 1) % 10000;
+            pollReply.setReportCounter(numPollReplies);
+        }
+        return pollReply;
+    }
+
+
+    /**
+     * @return the receive pipeline or null, if packets are handled on the
+     *         receive thread
+     */
+    public ReceivePipeline getReceivePipeline()
+    {
+        return pipeline;
+    }
+
+
+    private synchronized ScheduledExecutorService getReplyScheduler()
+    {
+        if (replyScheduler == null)
+        {
+            replyScheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactory()
+                    {
+
+                        @Override
+                        public Thread newThread(Runnable r)
+                        {
+                            Thread t = new Thread(r, "artnet4j-poll-reply");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+        return replyScheduler;
+    }
+
+
+    /**
+     * Asks the OS which local address it would send to the given remote
+     * address from. Connecting a datagram socket only consults the routing
+     * table, nothing is sent and no name lookup is done.
+     *
+     * @param remote
+     * @return the local address or null, if there is no route
+     */
+    protected InetAddress getRouteAddress(InetAddress remote)
+    {
+        try (DatagramSocket probe = new DatagramSocket())
+        {
+            probe.connect(remote, sendPort);
+            InetAddress local = probe.getLocalAddress();
+            return local != null && !local.isAnyLocalAddress() ? local : null;
+        }
+        catch (IOException e)
+        {
+            LOG.debug("no route to: {}", remote);
+            return null;
+        }
+    }
+
+
+    /**
+     * @return the router dispatching received ArtDmx packets by Port-Address
+     */
+    public ArtDmxRouter getRouter()
+    {
+        return router;
+    }
+
+
+    /**
+     * Returns the socket address for sending to the given IP. Addresses are
+     * cached so repeated sends to the same node don't allocate.
+     *
+     * @param address
+     * @return address with the server's send port
+     */
+    protected InetSocketAddress getSocketAddress(InetAddress address)
+    {
+        InetSocketAddress socketAddress = socketAddresses.get(address);
+        if (socketAddress == null)
+        {
+            socketAddress = new InetSocketAddress(address, sendPort);
+            socketAddresses.put(address, socketAddress);
+        }
+        return socketAddress;
+    }
+
+
+    /**
+     * Answers polls, routes ArtDmx packets to the listeners subscribed to
+     * their Port-Address and hands a successfully parsed packet to all
+     * registered listeners. Shared by all receive engines. Pooled packets are
+     * released afterwards.
+     *
+     * @param packet
+     * @param sender
+     *            address the packet was received from
+     */
+    protected void handlePacket(AbstractArtNetPacket packet, InetAddress sender)
+    {
+        boolean isTracking = isLatencyTracking;
+        long start = System.nanoTime();
+        packet.setSender(sender);
+        try
+        {
+            if (packet.getType() == PacketType.ART_OUTPUT)
+            {
+                metrics.recordDmx((ArtDmxPacket) packet, start);
+                router.dispatch((ArtDmxPacket) packet);
+                if (isTracking)
+                {
+                    latency.routing.record(System.nanoTime() - start);
+                }
+            }
+            else if (packet.getType() == PacketType.ART_POLL)
+            {
+                sendArtPollReply(sender, (ArtPollPacket) packet);
+            }
+            if (isTracking)
+            {
+                long time = System.nanoTime();
+                for (ArtNetServerListener l : listeners.get())
+                {
+                    l.artNetPacketReceived(packet);
+                    long now = System.nanoTime();
+                    latency.getListener(l).record(now - time);
+                    time = now;
+                }
+            }
+            else
+            {
+                for (ArtNetServerListener l : listeners.get())
+                {
+                    l.artNetPacketReceived(packet);
+                }
+            }
+        }
+        finally
+        {
+            long duration = System.nanoTime() - start;
+            metrics.recordDispatch(packet, duration);
+            if (isTracking)
+            {
+                latency.dispatch.record(duration);
+            }
+            packet.release();
+        }
+    }
+
+
+    /**
+     * Checks if a reply was sent by this server, i.e. from one of its local
+     * addresses with its bind index, so discovery doesn't list the server
+     * itself.
+     *
+     * @param address
+     *            IP address announced in the reply
+     * @param index
+     *            bind index announced in the reply, 0 is taken as 1
+     * @return
+     */
+    public boolean isOwnReply(InetAddress address, int index)
+    {
+        return Math.max(index, 1) == Math.max(bindIndex, 1)
+                && localAddresses.contains(address);
+    }
+
+
+        protected void notifyServerStarted()
     {
-        synchronized (listeners)
+        for (ArtNetServerListener l : listeners.get())
         {
-            listeners.remove(l);
+            l.artNetServerStarted(this);
         }
     }
 
 
+    protected void notifyServerStopped()
+    {
+        for (ArtNetServerListener l : listeners.get())
+        {
+            l.artNetServerStopped(this);
+        }
+    }
+
+
+    /**
+     * Parses a datagram received into the given array, into a pooled packet
+     * if pooling is enabled. The array may be larger than the datagram, only
+     * the first length bytes are parsed.
+     *
+     * @param raw
+     * @param length
+     *            length of the datagram
+     * @return parsed packet or null
+     */
+    protected AbstractArtNetPacket parsePacket(byte[] raw, int length)
+    {
+        long start = isLatencyTracking ? System.nanoTime() : 0;
+        AbstractArtNetPacket packet = packetPool != null
+                ? ArtNetPacketParser.parse(raw, length, packetPool,
+                        metrics.getParserMetrics())
+                : ArtNetPacketParser.parse(raw, 0, length,
+                        metrics.getParserMetrics());
+        if (start != 0)
+        {
+            latency.parse.record(System.nanoTime() - start);
+        }
+        return packet;
+    }
+
+
+    /**
+     * Parses the datagram between the buffer's position and limit, into a
+     * pooled packet if pooling is enabled.
+     *
+     * @param buffer
+     * @param receiveArray
+     *            array to copy unpooled packets into
+     * @return parsed packet or null
+     */
+    protected AbstractArtNetPacket parsePacket(ByteBuffer buffer,
+            byte[] receiveArray)
+    {
+        long start = isLatencyTracking ? System.nanoTime() : 0;
+        AbstractArtNetPacket packet = packetPool != null
+                ? ArtNetPacketParser.parse(buffer, packetPool,
+                        metrics.getParserMetrics())
+                : ArtNetPacketParser.parse(buffer, receiveArray,
+                        metrics.getParserMetrics());
+        if (start != 0)
+        {
+            latency.parse.record(System.nanoTime() - start);
+        }
+        return packet;
+    }
+
+
+    public void removeListener(ArtNetServerListener l)
+    {
+        listeners.remove(l);
+        latency.removeListener(l);
+    }
+
+
     @Override
     public void run()
     {
@@ -121,28 +598,30 @@ public class ArtNetServer
         {
             while (isRunning)
             {
+                long waitStart = isLatencyTracking ? System.nanoTime() : 0;
                 socket.receive(receivedPacket);
+                if (waitStart != 0)
+                {
+                    latency.receiveWait.record(System.nanoTime() - waitStart);
+                }
                 LOG.trace("received new packet");
-                AbstractArtNetPacket packet = ArtNetPacketParser.parse(receivedPacket);
+                metrics.recordDatagram(receivedPacket.getLength());
+                if (pipeline != null)
+                {
+                    pipeline.offer(receiveBuffer, receivedPacket.getLength(),
+                            receivedPacket.getAddress());
+                    continue;
+                }
+                AbstractArtNetPacket packet = parsePacket(receiveBuffer,
+                        receivedPacket.getLength());
                 if (packet != null)
                 {
-                    if (packet.getType() == PacketType.ART_POLL)
-                    {
-                        sendArtPollReply(receivedPacket.getAddress(),
-                                (ArtPollPacket) packet);
-                    }
-                    for (ArtNetServerListener l : listeners)
-                    {
-                        l.artNetPacketReceived(packet);
-                    }
+                    handlePacket(packet, receivedPacket.getAddress());
                 }
             }
             socket.close();
             LOG.info("server thread terminated.");
-            for (ArtNetServerListener l : listeners)
-            {
-                l.artNetServerStopped(this);
-            }
+            notifyServerStopped();
         }
         catch (IOException e)
         {
@@ -151,9 +630,153 @@ public class ArtNetServer
     }
 
 
-    private void sendArtPollReply(InetAddress inetAddress, ArtPollPacket packet)
+    /**
+     * Writes the packet to the wire. Receive engines using a different
+     * transport override this to send through it. A single
+     * {@link DatagramPacket} is reused for all sends.
+     *
+     * @param ap
+     * @param address
+     * @throws IOException
+     */
+    protected void send(AbstractArtNetPacket ap, InetAddress address)
+            throws IOException
+    {
+        synchronized (sendPacket)
+        {
+            sendPacket.setData(ap.getData(), 0, ap.getLength());
+            sendPacket.setSocketAddress(getSocketAddress(address));
+            socket.send(sendPacket);
+        }
+    }
+
+
+    /**
+     * Answers a poll after a random delay of up to {@link #maxReplyDelay}, so
+     * many nodes receiving the same broadcast don't reply at once. Polls from
+     * the same sender arriving while a reply is pending are answered by that
+     * reply.
+     *
+     * @param sender
+     * @param packet
+     */
+    private void sendArtPollReply(final InetAddress sender, ArtPollPacket packet)
+    {
+        if (sender == null || !pendingReplies.add(sender))
+        {
+            return;
+        }
+        long delay = maxReplyDelay > 0
+                ? ThreadLocalRandom.current().nextLong(maxReplyDelay + 1)
+                : 0;
+        try
+        {
+            getReplyScheduler().schedule(new Runnable()
+            {
+
+                @Override
+                public void run()
+                {
+                    pendingReplies.remove(sender);
+                    if (isRunning)
+                    {
+                        unicastPacket(getPollReply(sender), sender);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            pendingReplies.remove(sender);
+        }
+    }
+
+
+    /**
+     * Sends one frame of all given universes back to back from the calling
+     * thread. Each universe's own pre-encoded packet is used (see
+     * {@link DmxUniverse#getFramePacket(int)}) and sent to its node, or
+     * broadcasted if the node has no IP address. Disabled universes are
+     * skipped, as are universes whose data hasn't changed since they were last
+     * sent, unless the keep-alive interval has passed. A failing packet does
+     * not abort the batch. If sync output is enabled, an ArtSync packet is
+     * broadcast after the batch. The time taken for the whole batch is
+     * recorded in {@link #getBatchStats()}.
+     *
+     * @param universes
+     * @param numUniverses
+     *            number of array entries to send, starting at index 0
+     * @param sequenceID
+     * @return number of packets sent
+     */
+    public int sendBatch(DmxUniverse[] universes, int numUniverses,
+            int sequenceID)
+    {
+        long start = System.nanoTime();
+        int sent = 0;
+        int skipped = 0;
+        int errors = 0;
+        for (int i = 0; i < numUniverses; i++)
+        {
+            DmxUniverse universe = universes[i];
+            if (!universe.isEnabled())
+            {
+                continue;
+            }
+            if (!universe.isUpdateDue(start, keepAliveInterval))
+            {
+                skipped++;
+                continue;
+            }
+            ArtDmxPacket packet = universe.getFramePacket(sequenceID);
+            InetAddress target = universe.getNode().getIPAddress();
+            try
+            {
+                send(packet, target != null ? target : broadCastAddress);
+                metrics.recordSent(packet);
+                universe.lastSendTime = start;
+                sent++;
+                for (ArtNetServerListener l : listeners.get())
+                {
+                    l.artNetPacketUnicasted(packet);
+                }
+            }
+            catch (IOException e)
+            {
+                // the frame never left, so it's still due next time
+                universe.markDirty();
+                errors++;
+                metrics.recordSendError();
+                LOG.warn(e.getMessage());
+            }
+        }
+        if (isSyncOutput && sent > 0)
+        {
+            try
+            {
+                send(syncPacket, broadCastAddress);
+                metrics.recordSent(syncPacket);
+            }
+            catch (IOException e)
+            {
+                errors++;
+                metrics.recordSendError();
+                LOG.warn(e.getMessage());
+            }
+        }
+        batchStats.record(System.nanoTime() - start, sent, skipped, errors);
+        return sent;
+    }
+
+
+    /**
+     * @param index
+     *            bind index announced in ArtPollReply, 1 for the root device
+     */
+    public void setBindIndex(int index)
     {
-        // TODO send reply with self description
+        bindIndex = index;
+        configChanged();
     }
 
 
@@ -171,15 +794,141 @@ public class ArtNetServer
     }
 
 
-    private void setBufferSize(int size)
+    /**
+     * Sets socket and buffer options. Needs to be set before the server is
+     * started.
+     *
+     * @param config
+     */
+    public void setConfig(ArtNetServerConfig config)
     {
         if (!isRunning)
         {
-            receiveBufferSize = size;
+            this.config = new ArtNetServerConfig(config);
+            receiveBufferSize = config.receiveBufferSize;
+        }
+    }
+
+
+    /**
+     * Records and logs the settings in effect after binding, warning about
+     * buffer sizes the OS didn't grant.
+     *
+     * @param effective
+     */
+    protected void setEffectiveConfig(ArtNetServerConfig effective)
+    {
+        effectiveConfig = effective;
+        LOG.info("effective {}", effective);
+        if (effective.socketReceiveBufferSize < config.socketReceiveBufferSize)
+        {
+            LOG.warn("SO_RCVBUF limited to {} bytes instead of {}, check the OS limit (net.core.rmem_max)",
+                    effective.socketReceiveBufferSize, config.socketReceiveBufferSize);
+        }
+        if (effective.socketSendBufferSize < config.socketSendBufferSize)
+        {
+            LOG.warn("SO_SNDBUF limited to {} bytes instead of {}, check the OS limit (net.core.wmem_max)",
+                    effective.socketSendBufferSize, config.socketSendBufferSize);
+        }
+    }
+
+
+    /**
+     * Sets the interval after which universes sent via
+     * {@link #sendBatch(DmxUniverse[], int, int)} are resent even if their data
+     * didn't change. An interval of 0 disables suppression of unchanged
+     * universes.
+     *
+     * @param interval
+     * @param unit
+     */
+    public void setKeepAliveInterval(long interval, TimeUnit unit)
+    {
+        keepAliveInterval = unit.toNanos(interval);
+    }
+
+
+    /**
+     * Enables recording of receive path latencies into {@link #getLatency()}:
+     * waiting for datagrams, parsing, routing, dispatching and the time spent
+     * in each listener. Off by default, as it adds a few clock reads per
+     * packet and listener.
+     *
+     * @param isLatencyTracking
+     */
+    public void setLatencyTracking(boolean isLatencyTracking)
+    {
+        this.isLatencyTracking = isLatencyTracking;
+    }
+
+
+    /**
+     * Takes over the address the server is bound to as its IP and looks up
+     * the MAC address of the interface, both announced in ArtPollReply. For a
+     * wildcard address nothing is taken over, each reply then announces the
+     * interface routing to the poll's sender instead. Also remembers the local
+     * addresses used by {@link #isOwnReply(InetAddress, int)}.
+     *
+     * @param address
+     */
+    protected void setLocalAddress(InetAddress address)
+    {
+        if (address == null || address.isAnyLocalAddress())
+        {
+            localAddresses = getInterfaceAddresses();
+            return;
+        }
+        localAddresses = Collections.singleton(address);
+        setIPAddress(address);
+        byte[] mac = getMacAddress(address);
+        if (mac != null)
+        {
+            macAddress = mac;
+            configChanged();
         }
     }
 
 
+    /**
+     * @param delay
+     *            upper bound of the random delay in milliseconds before
+     *            answering an ArtPoll, 0 to answer immediately
+     */
+    public void setMaxReplyDelay(long delay)
+    {
+        maxReplyDelay = Math.max(delay, 0);
+    }
+
+
+    /**
+     * Sets the number of worker threads parsing and dispatching received
+     * packets. With 0 workers, the default, packets are handled directly on
+     * the receive thread. Needs to be set before the server is started.
+     *
+     * @param numWorkers
+     * @see ReceivePipeline
+     */
+    public void setReceiveWorkers(int numWorkers)
+    {
+        if (!isRunning)
+        {
+            numReceiveWorkers = Math.max(numWorkers, 0);
+        }
+    }
+
+
+    /**
+     * Enables broadcasting an ArtSync packet after each batch, so receivers
+     * output all universes of a frame at the same time.
+     *
+     * @param isSyncOutput
+     */
+    public void setSyncOutput(boolean isSyncOutput)
+    {
+        this.isSyncOutput = isSyncOutput;
+    }
+
+
     public void start()
             throws SocketException, ArtNetException
     {
@@ -198,18 +947,39 @@ public class ArtNetServer
         {
             socket = new DatagramSocket(null);
             socket.setReuseAddress(true);
+            socket.setBroadcast(true);
+            if (config.socketReceiveBufferSize > 0)
+            {
+                socket.setReceiveBufferSize(config.socketReceiveBufferSize);
+            }
+            if (config.socketSendBufferSize > 0)
+            {
+                socket.setSendBufferSize(config.socketSendBufferSize);
+            }
+            if (config.trafficClass >= 0)
+            {
+                socket.setTrafficClass(config.trafficClass);
+            }
 
+            if (networkAddress == null)
+                networkAddress = config.getInterfaceAddress();
             if (networkAddress == null)
                 networkAddress = socket.getLocalAddress();
 
             socket.bind(new InetSocketAddress(networkAddress, port));
+            setLocalAddress(networkAddress);
+
+            ArtNetServerConfig effective = new ArtNetServerConfig(config);
+            effective.socketReceiveBufferSize = socket.getReceiveBufferSize();
+            effective.socketSendBufferSize = socket.getSendBufferSize();
+            effective.trafficClass = socket.getTrafficClass();
+            setEffectiveConfig(effective);
 
             LOG.info("Art-Net server started at: {}:{}", networkAddress.getHostAddress(), port);
-            for (ArtNetServerListener l : listeners)
-            {
-                l.artNetServerStarted(this);
-            }
+            notifyServerStarted();
+            createPacketPool();
             isRunning = true;
+            startReceivePipeline();
             serverThread = new Thread(this);
             serverThread.start();
         }
@@ -221,9 +991,38 @@ public class ArtNetServer
     }
 
 
+    /**
+     * Creates and starts the receive pipeline if workers have been configured.
+     * Needs to be called by receive engines after setting
+     * {@link #isRunning}.
+     */
+    protected void startReceivePipeline()
+    {
+        if (numReceiveWorkers > 0)
+        {
+            pipeline = new ReceivePipeline(this, numReceiveWorkers,
+                    ReceivePipeline.DEFAULT_CAPACITY, receiveBufferSize);
+            pipeline.start();
+        }
+    }
+
+
     public void stop()
     {
         isRunning = false;
+        if (pipeline != null)
+        {
+            pipeline.stop();
+        }
+        synchronized (this)
+        {
+            if (replyScheduler != null)
+            {
+                replyScheduler.shutdownNow();
+                replyScheduler = null;
+            }
+        }
+        pendingReplies.clear();
     }
 
 
@@ -237,17 +1036,17 @@ public class ArtNetServer
     {
         try
         {
-            DatagramPacket packet = new DatagramPacket(ap.getData(), ap
-                    .getLength(), targetAdress, sendPort);
-            socket.send(packet);
+            send(ap, targetAdress);
+            metrics.recordSent(ap);
             LOG.trace("sent packet to: {}", targetAdress);
-            for (ArtNetServerListener l : listeners)
+            for (ArtNetServerListener l : listeners.get())
             {
                 l.artNetPacketUnicasted(ap);
             }
         }
         catch (IOException e)
         {
+            metrics.recordSendError();
             LOG.warn(e.getMessage());
         }
     }
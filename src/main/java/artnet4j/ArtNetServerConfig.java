@@ -0,0 +1,156 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.Enumeration;
+
+/**
+ * Socket and buffer settings of an {@link ArtNetServer}. Set on the server
+ * before it is started, the values actually applied by the OS can be read
+ * from {@link ArtNetServer#getEffectiveConfig()} after the server has bound
+ * its socket.
+ */
+public class ArtNetServerConfig
+{
+
+    public static final int DEFAULT_RECEIVE_BUFFER_SIZE = 2048;
+
+    /**
+     * DSCP Expedited Forwarding, commonly used for lighting control traffic.
+     */
+    public static final int DSCP_EF = 46;
+
+    /**
+     * DSCP Class Selector 5.
+     */
+    public static final int DSCP_CS5 = 40;
+
+    /**
+     * Size of the application buffers packets are received into, in bytes.
+     */
+    public int receiveBufferSize = DEFAULT_RECEIVE_BUFFER_SIZE;
+
+    /**
+     * Kernel receive buffer size (SO_RCVBUF) in bytes, 0 keeps the OS
+     * default. Large outputs of several hundred universes per frame need a
+     * buffer well above the usual defaults to survive bursts.
+     */
+    public int socketReceiveBufferSize;
+
+    /**
+     * Kernel send buffer size (SO_SNDBUF) in bytes, 0 keeps the OS default.
+     */
+    public int socketSendBufferSize;
+
+    /**
+     * IP traffic class (IP_TOS) of sent packets, -1 keeps the OS default.
+     *
+     * @see #setDscp(int)
+     */
+    public int trafficClass = -1;
+
+    /**
+     * Maximum number of idle packets kept per type for recycling received
+     * packets, 0 disables pooling. With pooling, received packets are only
+     * valid during the listener notification unless retained, see
+     * {@link artnet4j.packets.AbstractArtNetPacket#retain()}.
+     */
+    public int packetPoolSize;
+
+    /**
+     * Interface used for sending broadcasts and multicasts. If set and the
+     * server is started without an address, the server binds to the
+     * interface's IPv4 address.
+     */
+    public NetworkInterface networkInterface;
+
+
+    public ArtNetServerConfig()
+    {
+    }
+
+
+    public ArtNetServerConfig(ArtNetServerConfig config)
+    {
+        receiveBufferSize = config.receiveBufferSize;
+        socketReceiveBufferSize = config.socketReceiveBufferSize;
+        socketSendBufferSize = config.socketSendBufferSize;
+        trafficClass = config.trafficClass;
+        networkInterface = config.networkInterface;
+        packetPoolSize = config.packetPoolSize;
+    }
+
+
+    /**
+     * @return the DSCP part of the traffic class or -1, if not set
+     */
+    public int getDscp()
+    {
+        return trafficClass < 0 ? -1 : trafficClass >> 2;
+    }
+
+
+    /**
+     * @return the first IPv4 address of the configured interface or null
+     */
+    public InetAddress getInterfaceAddress()
+    {
+        if (networkInterface != null)
+        {
+            Enumeration<InetAddress> addresses = networkInterface.getInetAddresses();
+            while (addresses.hasMoreElements())
+            {
+                InetAddress address = addresses.nextElement();
+                if (address instanceof Inet4Address)
+                {
+                    return address;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Sets the traffic class from a DSCP code point, leaving the ECN bits
+     * cleared.
+     *
+     * @param dscp
+     *            0..63
+     */
+    public void setDscp(int dscp)
+    {
+        trafficClass = (dscp & 0x3f) << 2;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return "serverConfig: rxBuffer=" + receiveBufferSize + ", soRcvBuf="
+                + socketReceiveBufferSize + ", soSndBuf="
+                + socketSendBufferSize + ", tos=" + trafficClass + ", pool="
+                + packetPoolSize + ", if="
+                + (networkInterface != null ? networkInterface.getName() : null);
+    }
+}
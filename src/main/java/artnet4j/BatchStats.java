@@ -0,0 +1,151 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing and counters of batched frame transmissions, as recorded by
+ * {@link ArtNetServer#sendBatch(DmxUniverse[], int, int)}.
+ */
+public class BatchStats
+{
+
+    private long numBatches;
+    private long numPackets;
+    private long numSkipped;
+    private long numErrors;
+
+    private long lastBatchTime;
+    private long maxBatchTime;
+    private long totalBatchTime;
+
+
+    /**
+     * @return mean batch duration in nanoseconds
+     */
+    public synchronized long getAverageBatchTime()
+    {
+        return numBatches > 0 ? totalBatchTime / numBatches : 0;
+    }
+
+
+    /**
+     * @return duration of the most recent batch in nanoseconds
+     */
+    public synchronized long getLastBatchTime()
+    {
+        return lastBatchTime;
+    }
+
+
+    /**
+     * @return longest batch duration in nanoseconds
+     */
+    public synchronized long getMaxBatchTime()
+    {
+        return maxBatchTime;
+    }
+
+
+    /**
+     * @return the number of batches sent
+     */
+    public synchronized long getNumBatches()
+    {
+        return numBatches;
+    }
+
+
+    /**
+     * @return the number of failed packet sends
+     */
+    public synchronized long getNumErrors()
+    {
+        return numErrors;
+    }
+
+
+    /**
+     * @return the number of packets sent
+     */
+    public synchronized long getNumPackets()
+    {
+        return numPackets;
+    }
+
+
+    /**
+     * @return the number of unchanged universes which were not sent
+     */
+    public synchronized long getNumSkipped()
+    {
+        return numSkipped;
+    }
+
+
+    /**
+     * @param duration
+     *            time taken by the batch in nanoseconds
+     * @param packets
+     *            number of packets sent
+     * @param skipped
+     *            number of unchanged universes not sent
+     * @param errors
+     *            number of packets which failed to send
+     */
+    public synchronized void record(long duration, int packets, int skipped,
+            int errors)
+    {
+        numBatches++;
+        numPackets += packets;
+        numSkipped += skipped;
+        numErrors += errors;
+        lastBatchTime = duration;
+        totalBatchTime += duration;
+        if (duration > maxBatchTime)
+        {
+            maxBatchTime = duration;
+        }
+    }
+
+
+    /**
+     * Clears all counters.
+     */
+    public synchronized void reset()
+    {
+        numBatches = 0;
+        numPackets = 0;
+        numSkipped = 0;
+        numErrors = 0;
+        lastBatchTime = 0;
+        maxBatchTime = 0;
+        totalBatchTime = 0;
+    }
+
+
+    @Override
+    public synchronized String toString()
+    {
+        return "batches: " + numBatches + " packets: " + numPackets
+                + " skipped: " + numSkipped + " errors: " + numErrors + " last: "
+                + TimeUnit.NANOSECONDS.toMicros(lastBatchTime) + "us avg: "
+                + TimeUnit.NANOSECONDS.toMicros(getAverageBatchTime())
+                + "us max: " + TimeUnit.NANOSECONDS.toMicros(maxBatchTime)
+                + "us";
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed size pool of equally sized, preallocated direct {@link ByteBuffer}s.
+ * Buffers are handed out cleared and must be given back via
+ * {@link #release(ByteBuffer)} once the caller is done with them. If the pool
+ * runs dry a new buffer is allocated, which will be dropped again on release
+ * if the pool is already full.
+ */
+public class ByteBufferPool
+{
+
+    protected final int bufferSize;
+
+    private final ByteBuffer[] buffers;
+    private int available;
+
+
+    /**
+     * @param numBuffers
+     * @param bufferSize
+     */
+    public ByteBufferPool(int numBuffers, int bufferSize)
+    {
+        this.bufferSize = bufferSize;
+        buffers = new ByteBuffer[numBuffers];
+        for (int i = 0; i < numBuffers; i++)
+        {
+            buffers[i] = ByteBuffer.allocateDirect(bufferSize);
+        }
+        available = numBuffers;
+    }
+
+
+    /**
+     * @return a cleared buffer
+     */
+    public synchronized ByteBuffer acquire()
+    {
+        if (available == 0)
+        {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        ByteBuffer buffer = buffers[--available];
+        buffers[available] = null;
+        return buffer;
+    }
+
+
+    /**
+     * @return the size of each buffer in bytes
+     */
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+
+    /**
+     * @return number of buffers currently held by the pool
+     */
+    public synchronized int getNumAvailable()
+    {
+        return available;
+    }
+
+
+    /**
+     * @param buffer
+     */
+    public synchronized void release(ByteBuffer buffer)
+    {
+        if (available < buffers.length && buffer.capacity() == bufferSize)
+        {
+            buffer.clear();
+            buffers[available++] = buffer;
+        }
+    }
+}
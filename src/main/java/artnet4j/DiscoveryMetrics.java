@@ -0,0 +1,194 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of an {@link ArtNetNodeDiscovery}: polls and unicast re-polls
+ * sent, replies received and skipped as unchanged, node config changes and
+ * nodes coming and going.
+ */
+public class DiscoveryMetrics
+        implements DiscoveryMetricsMXBean
+{
+
+    protected final ArtNetNodeDiscovery discovery;
+
+    private final LongAdder numPolls = new LongAdder();
+    private final LongAdder numRepolls = new LongAdder();
+    private final LongAdder numReplies = new LongAdder();
+    private final LongAdder numUnchangedReplies = new LongAdder();
+    private final LongAdder numConfigChanges = new LongAdder();
+    private final LongAdder numNodesDiscovered = new LongAdder();
+    private final LongAdder numNodesLost = new LongAdder();
+
+
+    /**
+     * @param discovery
+     */
+    public DiscoveryMetrics(ArtNetNodeDiscovery discovery)
+    {
+        this.discovery = discovery;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.DiscoveryMetricsMXBean#getNumConfigChanges()
+     */
+    @Override
+    public long getNumConfigChanges()
+    {
+        return numConfigChanges.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.DiscoveryMetricsMXBean#getNumNodes()
+     */
+    @Override
+    public int getNumNodes()
+    {
+        return discovery.discoveredNodes.size();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.DiscoveryMetricsMXBean#getNumNodesDiscovered()
+     */
+    @Override
+    public long getNumNodesDiscovered()
+    {
+        return numNodesDiscovered.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.DiscoveryMetricsMXBean#getNumNodesLost()
+     */
+    @Override
+    public long getNumNodesLost()
+    {
+        return numNodesLost.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.DiscoveryMetricsMXBean#getNumPolls()
+     */
+    @Override
+    public long getNumPolls()
+    {
+        return numPolls.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.DiscoveryMetricsMXBean#getNumRepolls()
+     */
+    @Override
+    public long getNumRepolls()
+    {
+        return numRepolls.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.DiscoveryMetricsMXBean#getNumReplies()
+     */
+    @Override
+    public long getNumReplies()
+    {
+        return numReplies.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.DiscoveryMetricsMXBean#getNumUnchangedReplies()
+     */
+    @Override
+    public long getNumUnchangedReplies()
+    {
+        return numUnchangedReplies.sum();
+    }
+
+
+    void recordConfigChange()
+    {
+        numConfigChanges.increment();
+    }
+
+
+    void recordNodeDiscovered()
+    {
+        numNodesDiscovered.increment();
+    }
+
+
+    void recordNodeLost()
+    {
+        numNodesLost.increment();
+    }
+
+
+    void recordPoll()
+    {
+        numPolls.increment();
+    }
+
+
+    void recordRepoll()
+    {
+        numRepolls.increment();
+    }
+
+
+    void recordReply()
+    {
+        numReplies.increment();
+    }
+
+
+    void recordUnchangedReply()
+    {
+        numUnchangedReplies.increment();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.DiscoveryMetricsMXBean#reset()
+     */
+    @Override
+    public void reset()
+    {
+        numPolls.reset();
+        numRepolls.reset();
+        numReplies.reset();
+        numUnchangedReplies.reset();
+        numConfigChanges.reset();
+        numNodesDiscovered.reset();
+        numNodesLost.reset();
+    }
+}
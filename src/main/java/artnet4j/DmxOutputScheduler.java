@@ -0,0 +1,294 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends all registered universes at a fixed refresh rate from a dedicated
+ * thread. Frame deadlines are computed from the scheduler's start time rather
+ * than from the end of the previous frame, so timing errors don't accumulate.
+ * Frames which can't be sent before the next deadline are skipped and counted
+ * as missed, frames sent later than the configured tolerance are counted as
+ * late.
+ */
+public class DmxOutputScheduler
+        implements Runnable
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DmxOutputScheduler.class);
+
+    public static final int DEFAULT_FRAME_RATE = 44;
+
+    public static final int MAX_FRAME_RATE = 1000;
+
+    protected final ArtNet artNet;
+
+    protected volatile DmxUniverse[] universes = new DmxUniverse[0];
+
+    protected volatile boolean isActive;
+
+    protected volatile long framePeriod;
+    protected volatile long lateTolerance;
+
+    private final LongAdder numFrames = new LongAdder();
+    private final LongAdder numLateFrames = new LongAdder();
+    private final LongAdder numMissedFrames = new LongAdder();
+    private final AtomicLong maxLateness = new AtomicLong();
+
+    private int sequenceID;
+
+    private Thread schedulerThread;
+
+
+    /**
+     * @param artNet
+     */
+    public DmxOutputScheduler(ArtNet artNet)
+    {
+        this.artNet = artNet;
+        setFrameRate(DEFAULT_FRAME_RATE);
+    }
+
+
+    /**
+     * @param universe
+     */
+    public synchronized void addUniverse(DmxUniverse universe)
+    {
+        DmxUniverse[] current = universes;
+        DmxUniverse[] updated = new DmxUniverse[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = universe;
+        universes = updated;
+    }
+
+
+    /**
+     * @return frame period in nanoseconds
+     */
+    public long getFramePeriod()
+    {
+        return framePeriod;
+    }
+
+
+    /**
+     * @return the largest delay of a frame behind its deadline in nanoseconds
+     */
+    public long getMaxLateness()
+    {
+        return maxLateness.get();
+    }
+
+
+    /**
+     * @return number of frames sent
+     */
+    public long getNumFrames()
+    {
+        return numFrames.sum();
+    }
+
+
+    /**
+     * @return number of frames sent later than the late tolerance
+     */
+    public long getNumLateFrames()
+    {
+        return numLateFrames.sum();
+    }
+
+
+    /**
+     * @return number of frames skipped because their deadline had already
+     *         passed
+     */
+    public long getNumMissedFrames()
+    {
+        return numMissedFrames.sum();
+    }
+
+
+    /**
+     * @param universe
+     */
+    public synchronized void removeUniverse(DmxUniverse universe)
+    {
+        DmxUniverse[] current = universes;
+        for (int i = 0; i < current.length; i++)
+        {
+            if (current[i] == universe)
+            {
+                DmxUniverse[] updated = new DmxUniverse[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i,
+                        current.length - i - 1);
+                universes = updated;
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Resets frame counters and lateness statistics.
+     */
+    public void resetStats()
+    {
+        numFrames.reset();
+        numLateFrames.reset();
+        numMissedFrames.reset();
+        maxLateness.set(0);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run()
+    {
+        long deadline = System.nanoTime();
+        while (isActive)
+        {
+            long now = System.nanoTime();
+            while (now < deadline && isActive)
+            {
+                LockSupport.parkNanos(deadline - now);
+                now = System.nanoTime();
+            }
+            if (!isActive)
+            {
+                break;
+            }
+            long period = framePeriod;
+            long lateness = now - deadline;
+            if (lateness >= period)
+            {
+                long skipped = lateness / period;
+                numMissedFrames.add(skipped);
+                deadline += skipped * period;
+                lateness -= skipped * period;
+            }
+            if (lateness > lateTolerance)
+            {
+                numLateFrames.increment();
+            }
+            long max;
+            while (lateness > (max = maxLateness.get()))
+            {
+                if (maxLateness.compareAndSet(max, lateness))
+                {
+                    break;
+                }
+            }
+            sequenceID = sequenceID % 255 + 1;
+            try
+            {
+                artNet.sendBatch(universes, sequenceID);
+            }
+            catch (RuntimeException e)
+            {
+                LOG.warn("error sending frame", e);
+            }
+            numFrames.increment();
+            deadline += period;
+        }
+        LOG.info("output scheduler stopped");
+    }
+
+
+    /**
+     * Sets the refresh rate, which is clamped to 1..{@link #MAX_FRAME_RATE}
+     * Hz. The late tolerance is reset to a tenth of the frame period.
+     *
+     * @param fps
+     */
+    public void setFrameRate(int fps)
+    {
+        fps = Math.max(1, Math.min(fps, MAX_FRAME_RATE));
+        framePeriod = TimeUnit.SECONDS.toNanos(1) / fps;
+        lateTolerance = framePeriod / 10;
+    }
+
+
+    /**
+     * @param tolerance
+     *            delay behind the deadline after which a frame counts as late
+     * @param unit
+     */
+    public void setLateTolerance(long tolerance, TimeUnit unit)
+    {
+        lateTolerance = unit.toNanos(tolerance);
+    }
+
+
+    /**
+     * @throws ArtNetException
+     */
+    public void start()
+            throws ArtNetException
+    {
+        if (schedulerThread == null)
+        {
+            isActive = true;
+            schedulerThread = new Thread(this, "artnet4j-output");
+            schedulerThread.setPriority(Thread.MAX_PRIORITY);
+            schedulerThread.setDaemon(true);
+            schedulerThread.start();
+        }
+        else
+        {
+            throw new ArtNetException("output scheduler already started.");
+        }
+    }
+
+
+    /**
+     * Stops the output thread and waits for the frame in progress, so the
+     * scheduler can be started again right away.
+     */
+    public void stop()
+    {
+        isActive = false;
+        Thread thread = schedulerThread;
+        if (thread != null)
+        {
+            LockSupport.unpark(thread);
+            if (thread != Thread.currentThread())
+            {
+                try
+                {
+                    thread.join();
+                }
+                catch (InterruptedException e)
+                {
+                    LOG.warn("interrupted while waiting for the output thread");
+                    Thread.currentThread().interrupt();
+                }
+            }
+            schedulerThread = null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.net.InetAddress;
+
+import artnet4j.events.ArtNetServerEventAdapter;
+import artnet4j.events.DmxSyncListener;
+import artnet4j.packets.AbstractArtNetPacket;
+import artnet4j.packets.ArtDmxPacket;
+import artnet4j.packets.PacketType;
+
+/**
+ * Receive side of ArtSync. Received ArtDmx data for registered universes is
+ * buffered and only copied into the universes once an ArtSync packet
+ * arrives, so all universes of a frame change at the same time. As long as no
+ * ArtSync has been received for {@link #SYNC_TIMEOUT} milliseconds, ArtDmx
+ * data is applied immediately, as required by the Art-Net specification.
+ * While data is pending, only an ArtSync from the sender of that data
+ * releases it; ArtSync packets of other controllers are ignored. Needs to be
+ * added as listener to the receiving server.
+ */
+public class DmxSyncLatch
+        extends ArtNetServerEventAdapter
+{
+
+    public static final long SYNC_TIMEOUT = 4000;
+
+    protected final PortAddressIndex<DmxUniverse> universes =
+            new PortAddressIndex<DmxUniverse>();
+    protected final ListenerList<DmxSyncListener> listeners =
+            new ListenerList<DmxSyncListener>(new DmxSyncListener[0]);
+
+    private final byte[][] pendingData = new byte[PortAddress.NUM_ADDRESSES][];
+    private final int[] pendingAddresses = new int[PortAddress.NUM_ADDRESSES];
+    private final boolean[] isPending = new boolean[PortAddress.NUM_ADDRESSES];
+    private int numPending;
+
+    private final DmxUniverse[] applied = new DmxUniverse[PortAddress.NUM_ADDRESSES];
+
+    private long lastSyncTime;
+    private InetAddress pendingSender;
+
+
+    /**
+     * @param l
+     */
+    public void addListener(DmxSyncListener l)
+    {
+        listeners.add(l);
+    }
+
+
+    /**
+     * Registers a universe to receive the data sent to its address.
+     *
+     * @param universe
+     */
+    public synchronized void addUniverse(DmxUniverse universe)
+    {
+        int address = universe.getPortAddress();
+        if (pendingData[address] == null)
+        {
+            pendingData[address] = new byte[0x200];
+        }
+        universes.put(address, universe);
+    }
+
+
+    private void applyPending()
+    {
+        int numApplied = 0;
+        for (int i = 0; i < numPending; i++)
+        {
+            int address = pendingAddresses[i];
+            DmxUniverse universe = universes.get(address);
+            isPending[address] = false;
+            if (universe != null)
+            {
+                universe.setFrameData(pendingData[address]);
+                applied[numApplied++] = universe;
+            }
+        }
+        numPending = 0;
+        notifyListeners(numApplied);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.events.ArtNetServerEventAdapter#artNetPacketReceived(artnet4j.packets.AbstractArtNetPacket)
+     */
+    @Override
+    public synchronized void artNetPacketReceived(AbstractArtNetPacket packet)
+    {
+        if (packet.getType() == PacketType.ART_OUTPUT)
+        {
+            ArtDmxPacket dmx = (ArtDmxPacket) packet;
+            int address = dmx.getPortAddress();
+            DmxUniverse universe = universes.get(address);
+            if (universe != null)
+            {
+                if (isSyncMode())
+                {
+                    dmx.getDmx(pendingData[address]);
+                    pendingSender = dmx.getSender();
+                    if (!isPending[address])
+                    {
+                        isPending[address] = true;
+                        pendingAddresses[numPending++] = address;
+                    }
+                }
+                else
+                {
+                    dmx.getDmx(universe.frameData);
+                    universe.markDirty();
+                    applied[0] = universe;
+                    notifyListeners(1);
+                }
+            }
+        }
+        else if (packet.getType() == PacketType.ART_SYNC)
+        {
+            if (numPending > 0 && pendingSender != null
+                    && !pendingSender.equals(packet.getSender()))
+            {
+                return;
+            }
+            lastSyncTime = System.currentTimeMillis();
+            applyPending();
+        }
+    }
+
+
+    /**
+     * @return true, if an ArtSync has been received within the last
+     *         {@link #SYNC_TIMEOUT} milliseconds
+     */
+    public synchronized boolean isSyncMode()
+    {
+        return System.currentTimeMillis() - lastSyncTime < SYNC_TIMEOUT;
+    }
+
+
+    private void notifyListeners(int numApplied)
+    {
+        if (numApplied > 0)
+        {
+            for (DmxSyncListener l : listeners.get())
+            {
+                l.dmxFrameSynced(applied, numApplied);
+            }
+        }
+    }
+
+
+    /**
+     * @param l
+     */
+    public void removeListener(DmxSyncListener l)
+    {
+        listeners.remove(l);
+    }
+
+
+    /**
+     * @param universe
+     */
+    public synchronized void removeUniverse(DmxUniverse universe)
+    {
+        universes.remove(universe.getPortAddress(), universe);
+    }
+}
@@ -27,6 +27,12 @@ public class DmxUniverse
     protected boolean isEnabled = true;
     protected boolean isActive = true;
 
+    protected volatile boolean isDirty = true;
+    protected long lastSendTime;
+
+    protected ArtDmxPacket framePacket;
+    private int framePacketAddress = -1;
+
 
     /**
      * @param node
@@ -40,6 +46,16 @@ public class DmxUniverse
     }
 
 
+    /**
+     * @param offset
+     * @return the current value of the channel
+     */
+    public int getChannel(int offset)
+    {
+        return frameData[offset] & 0xff;
+    }
+
+
     /**
      * @return
      */
@@ -49,6 +65,41 @@ public class DmxUniverse
     }
 
 
+    /**
+     * Returns the packet owned by this universe, updated with the current frame
+     * data. Header, OpCode and universe are only encoded when first used (or
+     * when the Port-Address changed), afterwards
+     * only the sequence and the channel data are patched. Unlike
+     * {@link #getPacket(int)} this does not allocate, but the returned instance
+     * is reused for every frame and must not be held on to by the caller.
+     * Clears the dirty flag, a caller failing to send the packet needs to
+     * {@link #markDirty()} the universe again.
+     *
+     * @param sequenceID
+     * @return the reused packet of this universe
+     */
+    public ArtDmxPacket getFramePacket(int sequenceID)
+    {
+        if (framePacket == null)
+        {
+            framePacket = new ArtDmxPacket();
+        }
+        int address = getPortAddress();
+        if (address != framePacketAddress)
+        {
+            framePacket.setPortAddress(address);
+            framePacketAddress = address;
+        }
+        isDirty = false;
+        framePacket.setSequenceID(sequenceID);
+        // see getPacket() for Art-Lynx OP workaround
+        framePacket.setDMX(frameData, config.ignoreNumChannels
+                ? 0x200
+                : config.numDmxChannels);
+        return framePacket;
+    }
+
+
     /**
      * @return
      */
@@ -84,7 +135,7 @@ public class DmxUniverse
     {
         ArtDmxPacket packet = new ArtDmxPacket();
         packet.setSequenceID(sequenceID);
-        packet.setUniverse(node.getSubNet(), config.universeID);
+        packet.setPortAddress(getPortAddress());
         // FIXME Art-Lynx OP has firmware issue with packet lengths < 512
         // channels
         // packet.setDMX(frameData, config.numDmxChannels);
@@ -95,6 +146,18 @@ public class DmxUniverse
     }
 
 
+    /**
+     * @return the 15 bit Port-Address of this universe, made up of the node's
+     *         Net and SubNet plus the configured universe
+     * @see DmxUniverseConfig#universeID
+     */
+    public int getPortAddress()
+    {
+        return (PortAddress.compose(node.getNet(), node.getSubNet(), 0)
+                + config.universeID) & 0x7fff;
+    }
+
+
     /**
      * @return the isActive
      */
@@ -104,6 +167,16 @@ public class DmxUniverse
     }
 
 
+    /**
+     * @return true, if the channel data changed since the frame packet was last
+     *         updated
+     */
+    public boolean isDirty()
+    {
+        return isDirty;
+    }
+
+
     /**
      * @return the isEnabled
      */
@@ -113,6 +186,33 @@ public class DmxUniverse
     }
 
 
+    /**
+     * Checks whether this universe needs to be sent: either its data changed
+     * or it hasn't been sent for the keep-alive interval.
+     *
+     * @param now
+     *            current {@link System#nanoTime()}
+     * @param keepAlive
+     *            longest time in nanoseconds an unchanged universe may go
+     *            without being resent, 0 to always send
+     * @return true, if a packet should be sent
+     */
+    public boolean isUpdateDue(long now, long keepAlive)
+    {
+        return keepAlive <= 0 || isDirty || now - lastSendTime >= keepAlive;
+    }
+
+
+    /**
+     * Flags the channel data as changed. Needs to be called by subclasses
+     * writing to {@link #frameData} directly.
+     */
+    public void markDirty()
+    {
+        isDirty = true;
+    }
+
+
     /**
      * @param isActive
      *            the isActive to sunsetTime
@@ -129,7 +229,12 @@ public class DmxUniverse
      */
     public void setChannel(int offset, int val)
     {
-        frameData[offset] = (byte) val;
+        byte b = (byte) val;
+        if (frameData[offset] != b)
+        {
+            frameData[offset] = b;
+            isDirty = true;
+        }
     }
 
 
@@ -143,6 +248,19 @@ public class DmxUniverse
     }
 
 
+    /**
+     * Replaces all channel values with the given data.
+     *
+     * @param data
+     *            array of at least 512 values
+     */
+    public void setFrameData(byte[] data)
+    {
+        System.arraycopy(data, 0, frameData, 0, frameData.length);
+        isDirty = true;
+    }
+
+
     /**
      * @param node
      *            the node to sunsetTime
@@ -150,6 +268,7 @@ public class DmxUniverse
     public void setNode(ArtNetNode node)
     {
         this.node = node;
+        isDirty = true;
     }
 
 
@@ -160,9 +279,17 @@ public class DmxUniverse
     public void setRGBPixel(int offset, int col)
     {
         offset *= 3;
-        frameData[offset] = (byte) (col >> 16 & 0xff);
-        frameData[offset + 1] = (byte) (col >> 8 & 0xff);
-        frameData[offset + 2] = (byte) (col & 0xff);
+        byte r = (byte) (col >> 16 & 0xff);
+        byte g = (byte) (col >> 8 & 0xff);
+        byte b = (byte) (col & 0xff);
+        if (frameData[offset] != r || frameData[offset + 1] != g
+                || frameData[offset + 2] != b)
+        {
+            frameData[offset] = r;
+            frameData[offset + 1] = g;
+            frameData[offset + 2] = b;
+            isDirty = true;
+        }
     }
 
 
@@ -173,7 +300,8 @@ public class DmxUniverse
     @Override
     public String toString()
     {
-        return node.getIPAddress() + "u: " + config.universeID + " st: "
+        return node.getIPAddress() + "u: "
+                + PortAddress.toString(getPortAddress()) + " st: "
                 + isEnabled + "/" + isActive + " c: " + config.numDmxChannels;
     }
 }
@@ -37,7 +37,9 @@ public class DmxUniverseConfig
     public InetAddress ip;
 
     /**
-     * 
+     * Universe relative to the node's Net and SubNet. Values above 15 carry
+     * over into SubNet and Net, so for a node at Net 0 and SubNet 0 this is
+     * the full 15 bit Port-Address (0..32767).
      */
     @XmlAttribute(name = "universe")
     public int universeID;
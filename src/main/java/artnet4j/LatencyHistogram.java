@@ -0,0 +1,259 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed memory, log-linear histogram of durations in nanoseconds. Each power
+ * of two range is split into {@link #SUB_BUCKETS} linear buckets, so recorded
+ * values are kept with a relative error of at most 1/{@link #SUB_BUCKETS}
+ * across the whole positive long range, in less than 16KB per histogram.
+ * Recording is lock free and can be done from any number of threads.
+ */
+public class LatencyHistogram
+{
+
+    public static final int SUB_BUCKET_BITS = 5;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /*
+     * Static methods
+     */
+
+    private static int indexOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS
+                + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+
+    private static long valueOf(int index)
+    {
+        int bucket = index >> SUB_BUCKET_BITS;
+        long sub = index & (SUB_BUCKETS - 1);
+        if (bucket == 0)
+        {
+            return sub;
+        }
+        return (SUB_BUCKETS + sub) << (bucket - 1);
+    }
+
+
+    /**
+     * Adds all values recorded by the other histogram.
+     *
+     * @param other
+     */
+    public void add(LatencyHistogram other)
+    {
+        for (int i = 0; i < NUM_BUCKETS; i++)
+        {
+            long n = other.counts.get(i);
+            if (n > 0)
+            {
+                counts.addAndGet(i, n);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        updateMax(other.max.get());
+    }
+
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+
+    /**
+     * @return largest recorded value in nanoseconds
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+
+    /**
+     * @return mean of the recorded values in nanoseconds
+     */
+    public double getMean()
+    {
+        long n = count.get();
+        return n > 0 ? (double) sum.get() / n : 0;
+    }
+
+
+    /**
+     * Returns the lower bound of the bucket holding the given percentile.
+     *
+     * @param percentile
+     *            0..100
+     * @return value in nanoseconds
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long n = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++)
+        {
+            n += counts.get(i);
+        }
+        long rank = (long) Math.ceil(percentile / 100 * n);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0)
+            {
+                return Math.min(valueOf(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Records a duration. Negative values are recorded as 0.
+     *
+     * @param nanos
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+        counts.incrementAndGet(indexOf(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        updateMax(nanos);
+    }
+
+
+    /**
+     * Clears all recorded values.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < NUM_BUCKETS; i++)
+        {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+
+    /**
+     * @return a copy of the values recorded so far
+     */
+    public LatencyHistogram snapshot()
+    {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+
+    /**
+     * Moves the recorded values into a new histogram, so consecutive
+     * snapshots cover consecutive intervals without losing values recorded
+     * concurrently.
+     *
+     * @return the values recorded since the last reset
+     */
+    public LatencyHistogram snapshotAndReset()
+    {
+        LatencyHistogram copy = new LatencyHistogram();
+        long n = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++)
+        {
+            long c = counts.getAndSet(i, 0);
+            if (c > 0)
+            {
+                copy.counts.set(i, c);
+                n += c;
+            }
+        }
+        copy.count.set(n);
+        count.addAndGet(-n);
+        copy.sum.set(sum.getAndSet(0));
+        copy.max.set(max.getAndSet(0));
+        return copy;
+    }
+
+
+    /**
+     * @param unit
+     * @return count, mean, percentiles and max in the given unit
+     */
+    public String toString(TimeUnit unit)
+    {
+        double scale = unit.toNanos(1);
+        return String.format(
+                "n=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+                getCount(), getMean() / scale,
+                getValueAtPercentile(50) / scale,
+                getValueAtPercentile(90) / scale,
+                getValueAtPercentile(99) / scale,
+                getValueAtPercentile(99.9) / scale, getMax() / scale);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return toString(TimeUnit.MICROSECONDS);
+    }
+
+
+    private void updateMax(long value)
+    {
+        long current;
+        while (value > (current = max.get()))
+        {
+            if (max.compareAndSet(current, value))
+            {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write registry of listeners. Adding and removing replaces the
+ * listener array, {@link #get()} returns the current immutable snapshot, so
+ * notifying listeners is a plain array loop without locking or iterator
+ * allocation, and listeners may be added or removed while a notification is
+ * in progress.
+ *
+ * @param <T>
+ *            listener type
+ */
+public class ListenerList<T>
+{
+
+    private volatile T[] listeners;
+
+
+    /**
+     * @param empty
+     *            zero length array of the listener type
+     */
+    public ListenerList(T[] empty)
+    {
+        listeners = empty;
+    }
+
+
+    /**
+     * @param l
+     */
+    public synchronized void add(T l)
+    {
+        T[] current = listeners;
+        T[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = l;
+        listeners = updated;
+    }
+
+
+    /**
+     * @return the current listeners, must not be modified
+     */
+    public T[] get()
+    {
+        return listeners;
+    }
+
+
+    /**
+     * @return true, if no listeners are registered
+     */
+    public boolean isEmpty()
+    {
+        return listeners.length == 0;
+    }
+
+
+    /**
+     * Removes the first registration of the given listener.
+     *
+     * @param l
+     * @return true, if the listener was registered
+     */
+    public synchronized boolean remove(T l)
+    {
+        T[] current = listeners;
+        for (int i = 0; i < current.length; i++)
+        {
+            if (current[i] == l)
+            {
+                T[] updated = Arrays.copyOf(current, current.length - 1);
+                System.arraycopy(current, i + 1, updated, i,
+                        current.length - i - 1);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * @return number of registered listeners
+     */
+    public int size()
+    {
+        return listeners.length;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+package artnet4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary snapshot of discovered nodes, so a restarted application knows its
+ * nodes before the first poll has been answered. The file holds a header
+ * (magic, format version, save time, node count) followed by the
+ * configuration of each node: style, IP, Net, Sub-Net, OEM code, status,
+ * report code, names, port types and the SwIn/SwOut bytes. Files are replaced
+ * atomically where the file system supports it, so a partly written snapshot
+ * is normally never read.
+ */
+public class NodeCache
+{
+
+    public static final int MAGIC = 0x41344a4e;
+
+    public static final int VERSION = 1;
+
+    protected final File file;
+
+
+    /**
+     * @param file
+     */
+    public NodeCache(File file)
+    {
+        this.file = file;
+    }
+
+
+    /**
+     * @return the file
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+
+    /**
+     * Reads the nodes of the snapshot.
+     * 
+     * @return the nodes, empty if there is no snapshot yet
+     * @throws IOException
+     *             if the file can't be read or isn't a node snapshot
+     */
+    public List<ArtNetNode> load()
+            throws IOException
+    {
+        List<ArtNetNode> nodes = new ArrayList<ArtNetNode>();
+        if (!file.exists())
+        {
+            return nodes;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION)
+            {
+                throw new IOException("not a node cache: " + file);
+            }
+            in.readLong();
+            int numNodes = in.readInt();
+            for (int i = 0; i < numNodes; i++)
+            {
+                nodes.add(readNode(in));
+            }
+        }
+        return nodes;
+    }
+
+
+    private ArtNetNode readNode(DataInputStream in)
+            throws IOException
+    {
+        NodeStyle style = NodeStyle.getForID(in.readUnsignedByte());
+        ArtNetNode node = (style != null ? style : NodeStyle.ST_NODE).createNode();
+        byte[] ip = new byte[in.readUnsignedByte()];
+        in.readFully(ip);
+        node.setIPAddress(InetAddress.getByAddress(ip));
+        node.setNet(in.readUnsignedByte());
+        node.setSubNet(in.readUnsignedByte());
+        node.setOemCode(in.readUnsignedShort());
+        node.setNodeStatus(in.readUnsignedByte());
+        node.setReportCode(NodeReportCode.getForID(in.readUTF()));
+        node.setShortName(in.readUTF());
+        node.setLongName(in.readUTF());
+        PortDescriptor[] ports = new PortDescriptor[in.readUnsignedByte()];
+        for (int i = 0; i < ports.length; i++)
+        {
+            ports[i] = new PortDescriptor(in.readUnsignedByte());
+        }
+        node.setPorts(ports);
+        byte[] dmxIns = new byte[4];
+        in.readFully(dmxIns);
+        node.setDmxIns(dmxIns);
+        byte[] dmxOuts = new byte[4];
+        in.readFully(dmxOuts);
+        node.setDmxOuts(dmxOuts);
+        return node;
+    }
+
+
+    /**
+     * Writes a snapshot of the given nodes to a temporary file, which then
+     * replaces the cache file.
+     * 
+     * @param nodes
+     * @throws IOException
+     */
+    public void save(Collection<ArtNetNode> nodes)
+            throws IOException
+    {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile("nodes", ".tmp", dir);
+        try
+        {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(nodes.size());
+                for (ArtNetNode node : nodes)
+                {
+                    writeNode(out, node);
+                }
+            }
+            try
+            {
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                // e.g. some network file systems, replace non-atomically
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+
+
+    private void writeNode(DataOutputStream out, ArtNetNode node)
+            throws IOException
+    {
+        out.writeByte(node.getNodeStyle().getStyleID());
+        byte[] ip = node.getIPAddress().getAddress();
+        out.writeByte(ip.length);
+        out.write(ip);
+        out.writeByte(node.getNet());
+        out.writeByte(node.getSubNet());
+        out.writeShort(node.getOemCode());
+        out.writeByte(node.getNodeStatus());
+        out.writeUTF(node.getReportCode() != null ? node.getReportCode().id
+                : "");
+        out.writeUTF(node.getShortName() != null ? node.getShortName() : "");
+        out.writeUTF(node.getLongName() != null ? node.getLongName() : "");
+        PortDescriptor[] ports = node.getPorts() != null ? node.getPorts()
+                : new PortDescriptor[0];
+        out.writeByte(ports.length);
+        for (PortDescriptor port : ports)
+        {
+            out.writeByte(port.getID());
+        }
+        byte[] none = new byte[0];
+        out.write(Arrays.copyOf(
+                node.getDmxIns() != null ? node.getDmxIns() : none, 4));
+        out.write(Arrays.copyOf(
+                node.getDmxOuts() != null ? node.getDmxOuts() : none, 4));
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+package artnet4j;
+
+/**
+ * Fields of an {@link ArtNetNode} configuration, used to report which parts
+ * changed with an ArtPollReply.
+ */
+public enum NodeConfigField
+{
+    IP_ADDRESS, NET_SWITCH, SUB_SWITCH, OEM_CODE, NODE_STATUS, REPORT_CODE,
+    SHORT_NAME, LONG_NAME, PORTS, DMX_INS, DMX_OUTS;
+}
@@ -53,7 +53,7 @@ public enum NodeReportCode
     {
         for (NodeReportCode node : NodeReportCode.values())
         {
-            CODES.put(node.description, node);
+            CODES.put(node.id, node);
         }
     }
 
@@ -18,7 +18,7 @@ package artnet4j;
 public enum NodeStyle
 {
     ST_NODE(0, ArtNetNode.class),
-    ST_SERVER(1, ArtNetServer.class),
+    ST_SERVER(1, ArtNetNode.class),
     ST_MEDIA(2,
             ArtNetNode.class),
     ST_ROUTER(3, ArtNetNode.class),
@@ -26,6 +26,8 @@ public enum NodeStyle
             ArtNetNode.class),
     ST_CONFIG(5, ArtNetNode.class);
 
+    private static final NodeStyle[] STYLES = NodeStyle.values();
+
     private int id;
     private Class<? extends ArtNetNode> nodeClass;
 
@@ -37,8 +39,39 @@ public enum NodeStyle
     }
 
 
+    /*
+     * Static methods
+     */
+
+    /**
+     * @param id
+     * @return the style with the given ID or null, if unknown
+     */
+    public static NodeStyle getForID(int id)
+    {
+        for (NodeStyle s : STYLES)
+        {
+            if (s.id == id)
+            {
+                return s;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Creates a node representing a device of this style, plain
+     * {@link ArtNetNode}s are created with the style set.
+     * 
+     * @return the node or null, if it couldn't be created
+     */
     public ArtNetNode createNode()
     {
+        if (nodeClass == ArtNetNode.class)
+        {
+            return new ArtNetNode(this);
+        }
         ArtNetNode node = null;
         try
         {
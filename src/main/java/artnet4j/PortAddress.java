@@ -0,0 +1,90 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import artnet4j.packets.ByteCodec;
+
+/**
+ * Helpers for the 15 bit Art-Net 3/4 Port-Address, which is made up of a 7
+ * bit Net, a 4 bit SubNet and a 4 bit Universe.
+ */
+public class PortAddress
+{
+
+    /**
+     * Number of distinct Port-Addresses.
+     */
+    public static final int NUM_ADDRESSES = 0x8000;
+
+
+    /**
+     * @param net
+     * @param subnet
+     * @param universe
+     * @return the combined Port-Address
+     */
+    public static final int compose(int net, int subnet, int universe)
+    {
+        return (net & 0x7f) << 8 | (subnet & 0x0f) << 4 | (universe & 0x0f);
+    }
+
+
+    /**
+     * @param address
+     * @return the Net part of the address
+     */
+    public static final int getNet(int address)
+    {
+        return address >> 8 & 0x7f;
+    }
+
+
+    /**
+     * @param address
+     * @return the SubNet part of the address
+     */
+    public static final int getSubNet(int address)
+    {
+        return address >> 4 & 0x0f;
+    }
+
+
+    /**
+     * @param address
+     * @return the Universe part of the address
+     */
+    public static final int getUniverse(int address)
+    {
+        return address & 0x0f;
+    }
+
+
+    /**
+     * @param address
+     * @return the address formatted as Net:SubNet:Universe
+     */
+    public static final String toString(int address)
+    {
+        return ByteCodec.hex(getNet(address), 2) + ":"
+                + ByteCodec.hex(getSubNet(address), 1) + ":"
+                + ByteCodec.hex(getUniverse(address), 1);
+    }
+
+
+    private PortAddress()
+    {
+    }
+}
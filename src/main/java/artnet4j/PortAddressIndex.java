@@ -0,0 +1,103 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flat lookup table covering all 32768 Port-Addresses, so finding the entry
+ * for a received packet is a single array access regardless of how many
+ * addresses are in use. Lookups are safe from any thread without locking.
+ *
+ * @param <T>
+ *            type of the indexed entries
+ */
+public class PortAddressIndex<T>
+{
+
+    private final AtomicReferenceArray<T> entries =
+            new AtomicReferenceArray<T>(PortAddress.NUM_ADDRESSES);
+
+    private int size;
+
+
+    /**
+     * @param address
+     * @return the entry at the address or null
+     */
+    public T get(int address)
+    {
+        return entries.get(address & 0x7fff);
+    }
+
+
+    /**
+     * @param address
+     * @param entry
+     * @return the previous entry at the address or null
+     */
+    public synchronized T put(int address, T entry)
+    {
+        T previous = entries.getAndSet(address & 0x7fff, entry);
+        if (previous == null && entry != null)
+        {
+            size++;
+        }
+        else if (previous != null && entry == null)
+        {
+            size--;
+        }
+        return previous;
+    }
+
+
+    /**
+     * @param address
+     * @return the removed entry or null
+     */
+    public T remove(int address)
+    {
+        return put(address, null);
+    }
+
+
+    /**
+     * Removes the entry at the address, if it is the given one.
+     *
+     * @param address
+     * @param entry
+     * @return true, if the entry has been removed
+     */
+    public synchronized boolean remove(int address, T entry)
+    {
+        if (entry != null
+                && entries.compareAndSet(address & 0x7fff, entry, null))
+        {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * @return number of addresses with an entry
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+}
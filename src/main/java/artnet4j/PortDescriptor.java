@@ -53,6 +53,37 @@ public class PortDescriptor
     }
 
 
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof PortDescriptor))
+        {
+            return false;
+        }
+        PortDescriptor other = (PortDescriptor) obj;
+        return canOutput == other.canOutput && canInput == other.canInput
+                && type == other.type;
+    }
+
+
+    /**
+     * @return the port type byte used in ArtPollReply packets
+     */
+    public int getID()
+    {
+        return (canOutput ? 0x80 : 0) | (canInput ? 0x40 : 0)
+                | (type != null ? type.id : 0);
+    }
+
+
     /**
      * @return the type
      */
@@ -62,6 +93,17 @@ public class PortDescriptor
     }
 
 
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        return getID();
+    }
+
+
     @Override
     public String toString()
     {
@@ -0,0 +1,207 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms of a server's receive path: the time the receive thread
+ * waits in the socket or selector, parsing, routing ArtDmx packets to their
+ * Port-Address subscribers, the whole dispatch of a packet and the time
+ * spent in each server listener. All values are in nanoseconds.
+ */
+public class ReceiveLatency
+{
+
+    protected final LatencyHistogram receiveWait;
+    protected final LatencyHistogram parse;
+    protected final LatencyHistogram routing;
+    protected final LatencyHistogram dispatch;
+    protected final ConcurrentHashMap<Object, LatencyHistogram> listeners;
+
+
+    public ReceiveLatency()
+    {
+        this(new LatencyHistogram(), new LatencyHistogram(),
+                new LatencyHistogram(), new LatencyHistogram(),
+                new ConcurrentHashMap<Object, LatencyHistogram>());
+    }
+
+
+    private ReceiveLatency(LatencyHistogram receiveWait,
+            LatencyHistogram parse, LatencyHistogram routing,
+            LatencyHistogram dispatch,
+            ConcurrentHashMap<Object, LatencyHistogram> listeners)
+    {
+        this.receiveWait = receiveWait;
+        this.parse = parse;
+        this.routing = routing;
+        this.dispatch = dispatch;
+        this.listeners = listeners;
+    }
+
+
+    /**
+     * @return time from the start of handling a packet until all routes and
+     *         listeners returned
+     */
+    public LatencyHistogram getDispatch()
+    {
+        return dispatch;
+    }
+
+
+    /**
+     * @param l
+     * @return time spent in the listener's notification, created on first use
+     */
+    public LatencyHistogram getListener(Object l)
+    {
+        LatencyHistogram histogram = listeners.get(l);
+        if (histogram == null)
+        {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = listeners.putIfAbsent(l, histogram);
+            if (existing != null)
+            {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+
+    /**
+     * @return histograms of all listeners notified so far
+     */
+    public Map<Object, LatencyHistogram> getListeners()
+    {
+        return listeners;
+    }
+
+
+    /**
+     * @return time spent parsing datagrams
+     */
+    public LatencyHistogram getParse()
+    {
+        return parse;
+    }
+
+
+    /**
+     * @return time the receive thread waited for datagrams, in the blocking
+     *         receive call or the selector
+     */
+    public LatencyHistogram getReceiveWait()
+    {
+        return receiveWait;
+    }
+
+
+    /**
+     * @return time spent in the ArtDmx Port-Address subscribers
+     */
+    public LatencyHistogram getRouting()
+    {
+        return routing;
+    }
+
+
+    /**
+     * @param l
+     */
+    public void removeListener(Object l)
+    {
+        listeners.remove(l);
+    }
+
+
+    /**
+     * Clears all histograms.
+     */
+    public void reset()
+    {
+        receiveWait.reset();
+        parse.reset();
+        routing.reset();
+        dispatch.reset();
+        for (LatencyHistogram histogram : listeners.values())
+        {
+            histogram.reset();
+        }
+    }
+
+
+    /**
+     * @return a copy of all histograms
+     */
+    public ReceiveLatency snapshot()
+    {
+        ConcurrentHashMap<Object, LatencyHistogram> copies =
+                new ConcurrentHashMap<Object, LatencyHistogram>();
+        for (Map.Entry<Object, LatencyHistogram> e : listeners.entrySet())
+        {
+            copies.put(e.getKey(), e.getValue().snapshot());
+        }
+        return new ReceiveLatency(receiveWait.snapshot(), parse.snapshot(),
+                routing.snapshot(), dispatch.snapshot(), copies);
+    }
+
+
+    /**
+     * Moves all recorded values into a copy, so consecutive snapshots cover
+     * consecutive intervals.
+     *
+     * @return the values recorded since the last reset
+     */
+    public ReceiveLatency snapshotAndReset()
+    {
+        ConcurrentHashMap<Object, LatencyHistogram> copies =
+                new ConcurrentHashMap<Object, LatencyHistogram>();
+        for (Map.Entry<Object, LatencyHistogram> e : listeners.entrySet())
+        {
+            copies.put(e.getKey(), e.getValue().snapshotAndReset());
+        }
+        return new ReceiveLatency(receiveWait.snapshotAndReset(),
+                parse.snapshotAndReset(), routing.snapshotAndReset(),
+                dispatch.snapshotAndReset(), copies);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("receiveLatency [us]:\n  wait     ").append(receiveWait)
+                .append("\n  parse    ").append(parse)
+                .append("\n  routing  ").append(routing)
+                .append("\n  dispatch ").append(dispatch);
+        for (Map.Entry<Object, LatencyHistogram> e : listeners.entrySet())
+        {
+            sb.append("\n  ").append(e.getKey().getClass().getName())
+                    .append(' ')
+                    .append(e.getValue().toString(TimeUnit.MICROSECONDS));
+        }
+        return sb.toString();
+    }
+}
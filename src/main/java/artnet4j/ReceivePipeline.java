@@ -0,0 +1,405 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import artnet4j.packets.AbstractArtNetPacket;
+
+/**
+ * Decouples the socket read loop from parsing and listener dispatch. The
+ * receive thread only copies each datagram into a slot of a preallocated ring
+ * buffer, worker threads parse the packets and hand them to the server's
+ * listeners. Each worker owns one single-producer/single-consumer ring.
+ * ArtDmx packets are assigned to a worker by Port-Address, so all packets of
+ * a universe are handled in order by the same thread. Ordering across
+ * universes, e.g. of ArtSync relative to ArtDmx, is only guaranteed with a
+ * single worker. With more than one worker, listeners need to be thread
+ * safe.
+ * <p>
+ * If a worker's ring is full, the packet is either dropped or, if blocking is
+ * enabled, the receive thread waits for a free slot, leaving it to the kernel
+ * to buffer or drop. Both cases are counted.
+ */
+public class ReceivePipeline
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReceivePipeline.class);
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final long IDLE_PARK_NANOS = 1000000;
+
+    /**
+     * Ring buffer and consumer thread of one worker.
+     */
+    private static class Worker
+            implements Runnable
+    {
+
+        final ArtNetServer server;
+        final int mask;
+        final byte[][] data;
+        final int[] lengths;
+        final InetAddress[] senders;
+
+        volatile long head;
+        volatile long tail;
+        volatile boolean isParked;
+        volatile long numProcessed;
+
+        Thread thread;
+
+
+        Worker(ArtNetServer server, int capacity, int bufferSize)
+        {
+            this.server = server;
+            mask = capacity - 1;
+            data = new byte[capacity][bufferSize];
+            lengths = new int[capacity];
+            senders = new InetAddress[capacity];
+        }
+
+
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                long t = tail;
+                if (t == head)
+                {
+                    if (!server.isRunning)
+                    {
+                        break;
+                    }
+                    isParked = true;
+                    if (t == head)
+                    {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    isParked = false;
+                    continue;
+                }
+                int slot = (int) t & mask;
+                try
+                {
+                    // slots are full size and reused, only the recorded
+                    // length belongs to this datagram
+                    AbstractArtNetPacket packet = server.parsePacket(
+                            data[slot], lengths[slot]);
+                    if (packet != null)
+                    {
+                        server.handlePacket(packet, senders[slot]);
+                    }
+                }
+                catch (RuntimeException e)
+                {
+                    LOG.warn("error dispatching packet", e);
+                }
+                numProcessed++;
+                tail = t + 1;
+            }
+        }
+    }
+
+    protected final ArtNetServer server;
+    protected final int bufferSize;
+    protected boolean isBlocking;
+
+    private final Worker[] workers;
+
+    private volatile long numReceived;
+    private volatile long numDropped;
+    private volatile long numStalls;
+    private volatile int maxBacklog;
+
+
+    /**
+     * @param server
+     *            server handling the parsed packets
+     * @param numWorkers
+     * @param capacity
+     *            number of slots per worker, rounded up to a power of 2
+     * @param bufferSize
+     *            size of each slot, packets exceeding it are truncated
+     */
+    public ReceivePipeline(ArtNetServer server, int numWorkers, int capacity,
+            int bufferSize)
+    {
+        this.server = server;
+        this.bufferSize = bufferSize;
+        capacity = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        workers = new Worker[Math.max(numWorkers, 1)];
+        for (int i = 0; i < workers.length; i++)
+        {
+            workers[i] = new Worker(server, capacity, bufferSize);
+        }
+    }
+
+
+    /**
+     * Picks the worker for a datagram from its OpCode and Port-Address bytes
+     * and waits for or gives up on a free slot as configured.
+     */
+    private Worker claim(byte b8, byte b9, byte b14, byte b15, int length)
+    {
+        int key = 0;
+        // route ArtDmx (OpCode 0x5000, little endian) by Port-Address
+        if (length > 15 && b8 == 0x00 && b9 == 0x50)
+        {
+            key = (b14 & 0xff) | (b15 & 0x7f) << 8;
+        }
+        Worker worker = workers[key % workers.length];
+        numReceived++;
+        int backlog = (int) (worker.head - worker.tail);
+        if (backlog > maxBacklog)
+        {
+            maxBacklog = backlog;
+        }
+        if (backlog > worker.mask)
+        {
+            if (!isBlocking)
+            {
+                numDropped++;
+                return null;
+            }
+            numStalls++;
+            while (worker.head - worker.tail > worker.mask && server.isRunning)
+            {
+                LockSupport.unpark(worker.thread);
+                Thread.yield();
+            }
+        }
+        return worker;
+    }
+
+
+    /**
+     * @return the highest number of packets queued for a worker at once
+     */
+    public int getMaxBacklog()
+    {
+        return maxBacklog;
+    }
+
+
+    /**
+     * @return packets dropped because the ring was full
+     */
+    public long getNumDropped()
+    {
+        return numDropped;
+    }
+
+
+    /**
+     * @return packets parsed and dispatched by all workers
+     */
+    public long getNumProcessed()
+    {
+        long processed = 0;
+        for (Worker w : workers)
+        {
+            processed += w.numProcessed;
+        }
+        return processed;
+    }
+
+
+    /**
+     * @return packets handed to the pipeline by the receive thread
+     */
+    public long getNumReceived()
+    {
+        return numReceived;
+    }
+
+
+    /**
+     * @return how often the receive thread had to wait for a free slot
+     */
+    public long getNumStalls()
+    {
+        return numStalls;
+    }
+
+
+    /**
+     * @return the number of worker threads
+     */
+    public int getNumWorkers()
+    {
+        return workers.length;
+    }
+
+
+    /**
+     * Queues the datagram between the buffer's position and limit. Must only
+     * be called from the receive thread.
+     *
+     * @param buffer
+     * @param sender
+     * @return false, if the packet has been dropped
+     */
+    public boolean offer(ByteBuffer buffer, InetAddress sender)
+    {
+        int offset = buffer.position();
+        int length = Math.min(buffer.remaining(), bufferSize);
+        if (length <= 10)
+        {
+            return reject();
+        }
+        Worker worker = length > 15
+                ? claim(buffer.get(offset + 8), buffer.get(offset + 9),
+                        buffer.get(offset + 14), buffer.get(offset + 15),
+                        length)
+                : claim(buffer.get(offset + 8), buffer.get(offset + 9),
+                        (byte) 0, (byte) 0, length);
+        if (worker == null)
+        {
+            return false;
+        }
+        long h = worker.head;
+        int slot = (int) h & worker.mask;
+        buffer.get(worker.data[slot], 0, length);
+        buffer.position(offset);
+        publish(worker, slot, h, length, sender);
+        return true;
+    }
+
+
+    /**
+     * Queues a copy of the datagram. Must only be called from the receive
+     * thread.
+     *
+     * @param data
+     * @param length
+     * @param sender
+     * @return false, if the packet has been dropped
+     */
+    public boolean offer(byte[] data, int length, InetAddress sender)
+    {
+        length = Math.min(length, bufferSize);
+        if (length <= 10)
+        {
+            return reject();
+        }
+        Worker worker = length > 15
+                ? claim(data[8], data[9], data[14], data[15], length)
+                : claim(data[8], data[9], (byte) 0, (byte) 0, length);
+        if (worker == null)
+        {
+            return false;
+        }
+        long h = worker.head;
+        int slot = (int) h & worker.mask;
+        System.arraycopy(data, 0, worker.data[slot], 0, length);
+        publish(worker, slot, h, length, sender);
+        return true;
+    }
+
+
+    private void publish(Worker worker, int slot, long h, int length,
+            InetAddress sender)
+    {
+        worker.lengths[slot] = length;
+        worker.senders[slot] = sender;
+        worker.head = h + 1;
+        if (worker.isParked)
+        {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+
+    /**
+     * Counts a datagram too short to hold an OpCode as received and dropped.
+     *
+     * @return false
+     */
+    private boolean reject()
+    {
+        numReceived++;
+        numDropped++;
+        return false;
+    }
+
+
+    /**
+     * Resets the receive, drop and stall counters.
+     */
+    public void resetStats()
+    {
+        numReceived = 0;
+        numDropped = 0;
+        numStalls = 0;
+        maxBacklog = 0;
+    }
+
+
+    /**
+     * @param isBlocking
+     *            true to make the receive thread wait if a ring is full,
+     *            false to drop the packet
+     */
+    public void setBlocking(boolean isBlocking)
+    {
+        this.isBlocking = isBlocking;
+    }
+
+
+    /**
+     * Starts the worker threads. They keep running until the server is
+     * stopped and their rings are drained.
+     */
+    public void start()
+    {
+        for (int i = 0; i < workers.length; i++)
+        {
+            Thread t = new Thread(workers[i], "artnet4j-receive-worker-" + i);
+            t.setDaemon(true);
+            workers[i].thread = t;
+            t.start();
+        }
+    }
+
+
+    /**
+     * Wakes up idle workers, so they notice the server has stopped.
+     */
+    public void stop()
+    {
+        for (Worker w : workers)
+        {
+            LockSupport.unpark(w.thread);
+        }
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "received: " + numReceived + " processed: "
+                + getNumProcessed() + " dropped: " + numDropped + " stalls: "
+                + numStalls + " max backlog: " + maxBacklog;
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import artnet4j.packets.AbstractArtNetPacket;
+import artnet4j.packets.ArtDmxPacket;
+import artnet4j.packets.PacketType;
+import artnet4j.packets.ParserMetrics;
+
+/**
+ * Counters of a server's traffic: packets per type, bytes, send errors,
+ * listener dispatch time and per universe receive statistics. All counters
+ * are striped {@link LongAdder}s, so recording from several receive threads
+ * doesn't contend. Datagrams rejected by the parser are counted in the
+ * server's own {@link ParserMetrics}.
+ */
+public class ServerMetrics
+        implements ServerMetricsMXBean
+{
+
+    private static final PacketType[] TYPES = PacketType.values();
+
+    private final LongAdder[] packetsIn = new LongAdder[TYPES.length];
+    private final LongAdder[] packetsOut = new LongAdder[TYPES.length];
+
+    private final LongAdder numDatagramsIn = new LongAdder();
+    private final LongAdder numBytesIn = new LongAdder();
+    private final LongAdder numBytesOut = new LongAdder();
+    private final LongAdder numSendErrors = new LongAdder();
+    private final ParserMetrics parser = new ParserMetrics();
+    private final LongAdder dispatchTime = new LongAdder();
+    private final AtomicLong maxDispatchTime = new AtomicLong();
+
+    private final PortAddressIndex<UniverseMetrics> universes =
+            new PortAddressIndex<UniverseMetrics>();
+
+
+    public ServerMetrics()
+    {
+        for (int i = 0; i < TYPES.length; i++)
+        {
+            packetsIn[i] = new LongAdder();
+            packetsOut[i] = new LongAdder();
+        }
+    }
+
+
+    /*
+     * Static methods
+     */
+
+    private static Map<String, Long> toMap(LongAdder[] counters)
+    {
+        Map<String, Long> map = new TreeMap<String, Long>();
+        for (int i = 0; i < counters.length; i++)
+        {
+            long n = counters[i].sum();
+            if (n > 0)
+            {
+                map.put(TYPES[i].name(), n);
+            }
+        }
+        return map;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getDispatchTime()
+     */
+    @Override
+    public long getDispatchTime()
+    {
+        return dispatchTime.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getMaxDispatchTime()
+     */
+    @Override
+    public long getMaxDispatchTime()
+    {
+        return maxDispatchTime.get();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getMeanDispatchTime()
+     */
+    @Override
+    public double getMeanDispatchTime()
+    {
+        long n = getNumPacketsIn();
+        return n > 0 ? (double) dispatchTime.sum() / n : 0;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getNumBytesIn()
+     */
+    @Override
+    public long getNumBytesIn()
+    {
+        return numBytesIn.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getNumBytesOut()
+     */
+    @Override
+    public long getNumBytesOut()
+    {
+        return numBytesOut.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getNumDatagramsIn()
+     */
+    @Override
+    public long getNumDatagramsIn()
+    {
+        return numDatagramsIn.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getNumInvalidHeaders()
+     */
+    @Override
+    public long getNumInvalidHeaders()
+    {
+        return parser.getNumInvalidHeaders();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getNumInvalidLengths()
+     */
+    @Override
+    public long getNumInvalidLengths()
+    {
+        return parser.getNumInvalidLengths();
+    }
+
+
+    /**
+     * @return number of packets received and dispatched
+     */
+    public long getNumPacketsIn()
+    {
+        long n = 0;
+        for (LongAdder counter : packetsIn)
+        {
+            n += counter.sum();
+        }
+        return n;
+    }
+
+
+    /**
+     * @param type
+     * @return number of packets of the type received
+     */
+    public long getNumPacketsIn(PacketType type)
+    {
+        return packetsIn[type.ordinal()].sum();
+    }
+
+
+    /**
+     * @param type
+     * @return number of packets of the type sent
+     */
+    public long getNumPacketsOut(PacketType type)
+    {
+        return packetsOut[type.ordinal()].sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getNumParseFailures()
+     */
+    @Override
+    public long getNumParseFailures()
+    {
+        return parser.getNumParseFailures();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getNumSendErrors()
+     */
+    @Override
+    public long getNumSendErrors()
+    {
+        return numSendErrors.sum();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getNumUnsupported()
+     */
+    @Override
+    public long getNumUnsupported()
+    {
+        return parser.getNumUnsupported();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getPacketsIn()
+     */
+    @Override
+    public Map<String, Long> getPacketsIn()
+    {
+        return toMap(packetsIn);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getPacketsOut()
+     */
+    @Override
+    public Map<String, Long> getPacketsOut()
+    {
+        return toMap(packetsOut);
+    }
+
+
+    /**
+     * @return counters of the datagrams rejected by the parser
+     */
+    public ParserMetrics getParserMetrics()
+    {
+        return parser;
+    }
+
+
+    /**
+     * @param address
+     *            15 bit Port-Address
+     * @return statistics of the universe or null, if nothing was received for
+     *         it
+     */
+    public UniverseMetrics getUniverse(int address)
+    {
+        return universes.get(address);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getUniverseFrameRates()
+     */
+    @Override
+    public Map<String, Double> getUniverseFrameRates()
+    {
+        Map<String, Double> map = new TreeMap<String, Double>();
+        for (int i = 0; i < PortAddress.NUM_ADDRESSES; i++)
+        {
+            UniverseMetrics universe = universes.get(i);
+            if (universe != null)
+            {
+                map.put(PortAddress.toString(i), universe.getFrameRate());
+            }
+        }
+        return map;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#getUniverseSequenceGaps()
+     */
+    @Override
+    public Map<String, Long> getUniverseSequenceGaps()
+    {
+        Map<String, Long> map = new TreeMap<String, Long>();
+        for (int i = 0; i < PortAddress.NUM_ADDRESSES; i++)
+        {
+            UniverseMetrics universe = universes.get(i);
+            if (universe != null)
+            {
+                map.put(PortAddress.toString(i), universe.getNumSequenceGaps());
+            }
+        }
+        return map;
+    }
+
+
+    /**
+     * Counts a datagram read from the socket, before it is parsed.
+     *
+     * @param length
+     */
+    public void recordDatagram(int length)
+    {
+        numDatagramsIn.increment();
+        numBytesIn.add(length);
+    }
+
+
+    /**
+     * Counts a received packet and the time spent handing it to routes and
+     * listeners.
+     *
+     * @param packet
+     * @param nanos
+     */
+    public void recordDispatch(AbstractArtNetPacket packet, long nanos)
+    {
+        packetsIn[packet.getType().ordinal()].increment();
+        dispatchTime.add(nanos);
+        long max;
+        while (nanos > (max = maxDispatchTime.get()))
+        {
+            if (maxDispatchTime.compareAndSet(max, nanos))
+            {
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Updates the statistics of the packet's universe.
+     *
+     * @param packet
+     * @param now
+     *            receive time from {@link System#nanoTime()}
+     */
+    public void recordDmx(ArtDmxPacket packet, long now)
+    {
+        int address = packet.getPortAddress();
+        UniverseMetrics universe = universes.get(address);
+        if (universe == null)
+        {
+            synchronized (universes)
+            {
+                universe = universes.get(address);
+                if (universe == null)
+                {
+                    universe = new UniverseMetrics(address);
+                    universes.put(address, universe);
+                }
+            }
+        }
+        universe.record(packet.getSequenceID(), now);
+    }
+
+
+    public void recordSendError()
+    {
+        numSendErrors.increment();
+    }
+
+
+    /**
+     * Counts a successfully sent packet.
+     *
+     * @param packet
+     */
+    public void recordSent(AbstractArtNetPacket packet)
+    {
+        packetsOut[packet.getType().ordinal()].increment();
+        numBytesOut.add(packet.getLength());
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.ServerMetricsMXBean#reset()
+     */
+    @Override
+    public void reset()
+    {
+        for (int i = 0; i < TYPES.length; i++)
+        {
+            packetsIn[i].reset();
+            packetsOut[i].reset();
+        }
+        numDatagramsIn.reset();
+        numBytesIn.reset();
+        numBytesOut.reset();
+        numSendErrors.reset();
+        dispatchTime.reset();
+        maxDispatchTime.set(0);
+        parser.reset();
+        for (int i = 0; i < PortAddress.NUM_ADDRESSES; i++)
+        {
+            UniverseMetrics universe = universes.get(i);
+            if (universe != null)
+            {
+                universe.reset();
+            }
+        }
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return "serverMetrics: in=" + getPacketsIn() + ", out="
+                + getPacketsOut() + ", bytesIn=" + getNumBytesIn()
+                + ", bytesOut=" + getNumBytesOut() + ", sendErrors="
+                + getNumSendErrors() + ", meanDispatch="
+                + String.format("%.0f", getMeanDispatchTime()) + "ns";
+    }
+}
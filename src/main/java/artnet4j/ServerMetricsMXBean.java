@@ -0,0 +1,73 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.Map;
+
+/**
+ * JMX view of a server's {@link ServerMetrics}. Maps are keyed by packet type
+ * or by Port-Address in "Net:SubNet:Universe" notation.
+ */
+public interface ServerMetricsMXBean
+{
+
+    long getDispatchTime();
+
+
+    long getMaxDispatchTime();
+
+
+    double getMeanDispatchTime();
+
+
+    long getNumBytesIn();
+
+
+    long getNumBytesOut();
+
+
+    long getNumDatagramsIn();
+
+
+    long getNumInvalidHeaders();
+
+
+    long getNumInvalidLengths();
+
+
+    long getNumParseFailures();
+
+
+    long getNumSendErrors();
+
+
+    long getNumUnsupported();
+
+
+    Map<String, Long> getPacketsIn();
+
+
+    Map<String, Long> getPacketsOut();
+
+
+    Map<String, Double> getUniverseFrameRates();
+
+
+    Map<String, Long> getUniverseSequenceGaps();
+
+
+    void reset();
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Receive statistics of a single Port-Address: frame count, frame rate and
+ * gaps in the ArtDmx sequence numbers. The rate and last sequence number are
+ * updated without synchronization, as packets of one universe are normally
+ * received by a single thread; with several senders for the same universe
+ * they are approximate.
+ */
+public class UniverseMetrics
+{
+
+    /**
+     * Weight of a new frame interval in the frame rate average, as a power of
+     * two.
+     */
+    private static final int RATE_SMOOTHING = 3;
+
+    protected final int portAddress;
+
+    private final LongAdder numFrames = new LongAdder();
+    private final LongAdder numSequenceGaps = new LongAdder();
+
+    private int lastSequence;
+    private long lastFrameTime;
+    private long averageInterval;
+
+
+    /**
+     * @param portAddress
+     */
+    public UniverseMetrics(int portAddress)
+    {
+        this.portAddress = portAddress;
+    }
+
+
+    /**
+     * Returns the current frame rate, averaged over the last few frames. If
+     * no frame has been received for longer than the average interval, the
+     * rate decays accordingly.
+     *
+     * @return frames per second
+     */
+    public double getFrameRate()
+    {
+        long last = lastFrameTime;
+        long interval = averageInterval;
+        if (last == 0 || interval == 0)
+        {
+            return 0;
+        }
+        interval = Math.max(interval, System.nanoTime() - last);
+        return (double) TimeUnit.SECONDS.toNanos(1) / interval;
+    }
+
+
+    /**
+     * @return number of frames received
+     */
+    public long getNumFrames()
+    {
+        return numFrames.sum();
+    }
+
+
+    /**
+     * @return number of frames whose sequence number didn't follow the
+     *         previous one, caused by loss or reordering
+     */
+    public long getNumSequenceGaps()
+    {
+        return numSequenceGaps.sum();
+    }
+
+
+    public int getPortAddress()
+    {
+        return portAddress;
+    }
+
+
+    /**
+     * Records a received frame.
+     *
+     * @param sequence
+     *            ArtDmx sequence number, 0 if sequencing is disabled
+     * @param now
+     *            receive time from {@link System#nanoTime()}
+     */
+    public void record(int sequence, long now)
+    {
+        numFrames.increment();
+        if (sequence != 0)
+        {
+            if (lastSequence != 0 && sequence != lastSequence % 255 + 1)
+            {
+                numSequenceGaps.increment();
+            }
+            lastSequence = sequence;
+        }
+        if (lastFrameTime != 0)
+        {
+            long interval = now - lastFrameTime;
+            averageInterval = averageInterval == 0
+                    ? interval
+                    : averageInterval
+                            + ((interval - averageInterval) >> RATE_SMOOTHING);
+        }
+        lastFrameTime = now;
+    }
+
+
+    /**
+     * Clears the counters.
+     */
+    public void reset()
+    {
+        numFrames.reset();
+        numSequenceGaps.reset();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return "universe " + PortAddress.toString(portAddress) + ": frames="
+                + getNumFrames() + ", rate="
+                + String.format("%.1f", getFrameRate()) + ", gaps="
+                + getNumSequenceGaps();
+    }
+}
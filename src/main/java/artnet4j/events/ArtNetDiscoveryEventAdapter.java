@@ -16,8 +16,10 @@
 package artnet4j.events;
 
 import java.util.List;
+import java.util.Set;
 
 import artnet4j.ArtNetNode;
+import artnet4j.NodeConfigField;
 
 public class ArtNetDiscoveryEventAdapter
         implements ArtNetDiscoveryListener
@@ -30,6 +32,14 @@ public class ArtNetDiscoveryEventAdapter
     }
 
 
+    @Override
+    public void discoveredNodeChanged(ArtNetNode node,
+            Set<NodeConfigField> changes)
+    {
+
+    }
+
+
     @Override
     public void discoveredNodeDisconnected(ArtNetNode node)
     {
@@ -16,8 +16,10 @@
 package artnet4j.events;
 
 import java.util.List;
+import java.util.Set;
 
 import artnet4j.ArtNetNode;
+import artnet4j.NodeConfigField;
 
 public interface ArtNetDiscoveryListener
 {
@@ -25,6 +27,21 @@ public interface ArtNetDiscoveryListener
     void discoveredNewNode(ArtNetNode node);
 
 
+    /**
+     * Called when the reply of a known node differs from the previous one.
+     * Does nothing by default.
+     * 
+     * @param node
+     *            the node, already updated
+     * @param changes
+     *            the fields which changed
+     */
+    default void discoveredNodeChanged(ArtNetNode node,
+            Set<NodeConfigField> changes)
+    {
+    }
+
+
     void discoveredNodeDisconnected(ArtNetNode node);
 
 
@@ -15,15 +15,34 @@
 
 package artnet4j.packets;
 
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of all packets. Packets handed out by a {@link PacketPool} are
+ * reference counted: whoever obtained one from the pool releases it via
+ * {@link #release()} or try-with-resources once done, listeners keeping a
+ * received packet beyond the notification need to {@link #retain()} it.
+ * For packets not owned by a pool both are no-ops.
+ */
 public abstract class AbstractArtNetPacket
+        implements AutoCloseable
 {
     public static final byte[] HEADER = "Art-Net\0".getBytes();
 
     public static final int PROTOCOL_VERSION = 14;
 
-    protected ByteUtils data;
+    protected ByteCodec data;
     protected final PacketType type;
 
+    PacketPool pool;
+    byte[] poolBuffer;
+
+    private ByteBuffer buffer;
+    private InetAddress sender;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
 
     /**
      * @param type
@@ -34,6 +53,38 @@ public abstract class AbstractArtNetPacket
     }
 
 
+    /**
+     * Same as {@link #release()}.
+     * 
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close()
+    {
+        release();
+    }
+
+
+    /**
+     * Returns a {@link ByteBuffer} view of the packet data, ready to be written
+     * to a channel. The view is created once and reused for as long as the
+     * underlying data array is not replaced, so a packet which is kept and
+     * re-sent does not cause any allocation. The view is shared and therefore
+     * must not be used by multiple threads at the same time.
+     * 
+     * @return buffer positioned at 0 and limited to {@link #getLength()}
+     */
+    public ByteBuffer getBuffer()
+    {
+        if (buffer == null)
+        {
+            buffer = data.getBuffer().duplicate();
+        }
+        buffer.limit(getLength()).position(0);
+        return buffer;
+    }
+
+
     /**
      * @return the data
      */
@@ -50,7 +101,17 @@ public abstract class AbstractArtNetPacket
      */
     public int getLength()
     {
-        return data.length;
+        return data.getLength();
+    }
+
+
+    /**
+     * @return address the packet was received from, null for packets not
+     *         received by a server
+     */
+    public InetAddress getSender()
+    {
+        return sender;
     }
 
 
@@ -65,41 +126,128 @@ public abstract class AbstractArtNetPacket
     }
 
 
+    /**
+     * @return true, if the packet belongs to a {@link PacketPool}
+     */
+    public boolean isPooled()
+    {
+        return pool != null;
+    }
+
+
+    /**
+     * Parses the whole given byte array, see {@link #parse(byte[], int)}.
+     * 
+     * @param raw
+     * @return true, if there were no parse errors
+     */
+    public boolean parse(byte[] raw)
+    {
+        return parse(raw, raw.length);
+    }
+
+
     /**
      * Parses the given byte array into semantic values and populates type
      * specific fields for each packet type. Implementing classes do not need to
      * check the packet header anymore since this has already been done at this
-     * stage.
+     * stage. Only the first length bytes belong to the datagram, the array
+     * may be a reused receive buffer holding stale bytes beyond.
      * 
      * @param raw
+     * @param length
+     *            length of the datagram
      * @return true, if there were no parse errors
      */
-    public abstract boolean parse(byte[] raw);
+    public abstract boolean parse(byte[] raw, int length);
+
+
+    /**
+     * Gives up one reference to the packet. The last release hands a pooled
+     * packet back to its pool, after which it must not be used anymore.
+     */
+    public void release()
+    {
+        if (pool != null)
+        {
+            int count = refCount.decrementAndGet();
+            if (count == 0)
+            {
+                pool.recycle(this);
+            }
+            else if (count < 0)
+            {
+                refCount.set(0);
+                throw new IllegalStateException("packet released too often: "
+                        + type);
+            }
+        }
+    }
+
+
+    /**
+     * Sets the reference count of a packet handed out by the pool.
+     * 
+     * @param count
+     */
+    void resetRefCount(int count)
+    {
+        refCount.set(count);
+    }
+
+
+    /**
+     * Takes an additional reference to the packet, so a pooled packet isn't
+     * recycled before the matching {@link #release()}.
+     * 
+     * @return itself
+     */
+    public AbstractArtNetPacket retain()
+    {
+        refCount.incrementAndGet();
+        return this;
+    }
 
 
     /**
+     * Sets the packet data. The codec and the cached buffer view are reused if
+     * possible, so parsing a recycled packet doesn't allocate.
+     * 
      * @param data
      *            the data to set
      */
     public void setData(byte[] data)
     {
-        this.data = new ByteUtils(data);
+        if (this.data == null)
+        {
+            this.data = new ByteCodec(data);
+        }
+        else
+        {
+            this.data.wrap(data);
+        }
+        if (buffer != null && buffer.array() != data)
+        {
+            buffer = null;
+        }
     }
 
 
     /**
+     * Sets the packet data, ignoring any bytes beyond maxLength. The array is
+     * used as is, so {@link #getData()} may return more than
+     * {@link #getLength()} bytes.
+     * 
      * @param raw
      * @param maxLength
      */
     public void setData(byte[] raw, int maxLength)
     {
+        setData(raw);
         if (raw.length > maxLength)
         {
-            byte[] raw2 = new byte[maxLength];
-            System.arraycopy(raw, 0, raw2, 0, maxLength);
-            raw = raw2;
+            data.setLength(maxLength);
         }
-        setData(raw);
     }
 
 
@@ -123,6 +271,16 @@ public abstract class AbstractArtNetPacket
     }
 
 
+    /**
+     * @param sender
+     *            address the packet was received from
+     */
+    public void setSender(InetAddress sender)
+    {
+        this.sender = sender;
+    }
+
+
     /*
      * (non-Javadoc)
      * @see java.lang.Object#toString()
@@ -18,16 +18,28 @@ package artnet4j.packets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import artnet4j.PortAddress;
+
+/**
+ * ArtDmx packet carrying the channel data of one universe. Received packets
+ * are flyweights: {@link #parse(byte[])} doesn't copy anything, all accessors
+ * read straight from the receive buffer. A received packet is therefore only
+ * valid until the server reuses its buffer for the next datagram, i.e. for
+ * the duration of the listener callback. Use {@link #getDmx(byte[])} to keep
+ * the channel data.
+ */
 public class ArtDmxPacket
         extends AbstractArtNetPacket
 {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractArtNetPacket.class);
 
+    /**
+     * Offset of the first channel value within the packet data.
+     */
+    public static final int DMX_OFFSET = 18;
+
     private int numChannels;
-    private int sequenceID;
-    private int subnetID;
-    private int universeID;
 
 
     /**
@@ -43,15 +55,51 @@ public class ArtDmxPacket
     }
 
 
+    /**
+     * @param channel
+     *            0-based channel index
+     * @return the value of the channel
+     */
+    public int getChannel(int channel)
+    {
+        return data.getInt8(DMX_OFFSET + channel);
+    }
+
+
+    /**
+     * Copies the DMX channel data into the given buffer.
+     *
+     * @param buffer
+     *            target array or null to create a new one
+     * @return array holding the channel data
+     */
+    public byte[] getDmx(byte[] buffer)
+    {
+        return data.getByteChunk(buffer, DMX_OFFSET, numChannels);
+    }
+
+
     /**
      * @return the actual packet size used. If an odd number DMX channels is
-     *         used, the packet size is made even automatically.
+     *         used, the packet size is made even automatically, unless the
+     *         received datagram ends right after the last channel.
      * @see artnet4j.packets.AbstractArtNetPacket#getLength()
      */
     @Override
     public int getLength()
     {
-        return 18 + (1 == numChannels % 2 ? numChannels + 1 : numChannels);
+        return Math.min(DMX_OFFSET
+                + (1 == numChannels % 2 ? numChannels + 1 : numChannels),
+                data.getLength());
+    }
+
+
+    /**
+     * @return the Net part of the Port-Address
+     */
+    public int getNetID()
+    {
+        return data.getInt8(15) & 0x7f;
     }
 
 
@@ -64,12 +112,21 @@ public class ArtDmxPacket
     }
 
 
+    /**
+     * @return the full 15 bit Port-Address made up of Net, SubNet and Universe
+     */
+    public int getPortAddress()
+    {
+        return data.getInt16LE(14) & 0x7fff;
+    }
+
+
     /**
      * @return the sequenceID
      */
     public int getSequenceID()
     {
-        return sequenceID;
+        return data.getInt8(12);
     }
 
 
@@ -78,7 +135,7 @@ public class ArtDmxPacket
      */
     public int getSubnetID()
     {
-        return subnetID;
+        return data.getInt8(14) >> 4;
     }
 
 
@@ -87,18 +144,34 @@ public class ArtDmxPacket
      */
     public int getUniverseID()
     {
-        return universeID;
+        return data.getInt8(14) & 0x0f;
     }
 
 
-    /*
-     * (non-Javadoc)
-     * @see artnet4j.packets.AbstractArtNetPacket#parse(byte[])
+    /**
+     * Wraps the given buffer without copying it. Only the channel count is
+     * decoded, packets declaring more channels than the datagram holds are
+     * rejected.
+     * 
+     * @see artnet4j.packets.AbstractArtNetPacket#parse(byte[], int)
      */
     @Override
-    public boolean parse(byte[] raw)
+    public boolean parse(byte[] raw, int length)
     {
-        return false;
+        if (length < DMX_OFFSET)
+        {
+            return false;
+        }
+        setData(raw, length);
+        int declared = data.getInt16(16);
+        if (declared > data.getLength() - DMX_OFFSET)
+        {
+            LOG.debug("declared {} channels, but only {} received", declared,
+                    data.getLength() - DMX_OFFSET);
+            return false;
+        }
+        numChannels = Math.min(declared, 512);
+        return true;
     }
 
 
@@ -108,14 +181,27 @@ public class ArtDmxPacket
      */
     public void setDMX(byte[] dmxData, int numChannels)
     {
-        LOG.trace("setting DMX data for: {} channels", numChannels);
+        if (LOG.isTraceEnabled())
+        {
+            LOG.trace("setting DMX data for: {} channels", numChannels);
+        }
         this.numChannels = numChannels;
-        data.setByteChunk(dmxData, 18, numChannels);
+        data.setByteChunk(dmxData, DMX_OFFSET, numChannels);
         data.setInt16((1 == numChannels % 2 ? numChannels + 1 : numChannels),
                 16);
     }
 
 
+    /**
+     * @param netID
+     *            the Net part of the Port-Address to set
+     */
+    public void setNetID(int netID)
+    {
+        data.setInt8(netID & 0x7f, 15);
+    }
+
+
     /**
      * @param numChannels
      *            the number of DMX channels to set
@@ -126,12 +212,25 @@ public class ArtDmxPacket
     }
 
 
+    /**
+     * @param address
+     *            the 15 bit Port-Address
+     */
+    public void setPortAddress(int address)
+    {
+        data.setInt16LE(address & 0x7fff, 14);
+        if (LOG.isTraceEnabled())
+        {
+            LOG.trace("port address set to: {}", PortAddress.toString(address));
+        }
+    }
+
+
     /**
      * @param id
      */
     public void setSequenceID(int id)
     {
-        sequenceID = id % 0xff;
         data.setInt8(id, 12);
     }
 
@@ -142,20 +241,30 @@ public class ArtDmxPacket
      */
     public void setSubnetID(int subnetID)
     {
-        this.subnetID = subnetID & 0x0f;
+        data.setInt8((subnetID & 0x0f) << 4 | getUniverseID(), 14);
     }
 
 
     /**
+     * Sets SubNet and Universe, with the Net set to 0.
+     *
      * @param subnetID
      * @param universeID
      */
     public void setUniverse(int subnetID, int universeID)
     {
-        this.subnetID = subnetID & 0x0f;
-        this.universeID = universeID & 0x0f;
-        data.setInt16LE(subnetID << 4 | universeID, 14);
-        LOG.trace("universe ID set to: subnet: {}/{}", ByteUtils.hex(subnetID, 2), ByteUtils.hex(universeID, 2));
+        setUniverse(0, subnetID, universeID);
+    }
+
+
+    /**
+     * @param netID
+     * @param subnetID
+     * @param universeID
+     */
+    public void setUniverse(int netID, int subnetID, int universeID)
+    {
+        setPortAddress(PortAddress.compose(netID, subnetID, universeID));
     }
 
 
@@ -165,6 +274,6 @@ public class ArtDmxPacket
      */
     public void setUniverseID(int universeID)
     {
-        this.universeID = universeID & 0x0f;
+        data.setInt8(getSubnetID() << 4 | (universeID & 0x0f), 14);
     }
 }
@@ -16,60 +16,283 @@
 package artnet4j.packets;
 
 import java.net.DatagramPacket;
-import java.util.logging.Logger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ArtNetPacketParser
 {
 
-    public static final Logger logger =
-            Logger.getLogger(ArtNetPacketParser.class.getClass().getName());
+    private static final Logger LOG = LoggerFactory.getLogger(ArtNetPacketParser.class);
+
+    private static final ParserMetrics DEFAULT_METRICS = new ParserMetrics();
 
 
     public static AbstractArtNetPacket createPacketForOpCode(int opCode, byte[] data)
     {
-        logger.finer("creating packet instance for opcode: 0x"
-                + ByteUtils.hex(opCode, 4));
+        return createPacketForOpCode(opCode, data, data.length);
+    }
+
+
+    /**
+     * Creates a packet for the OpCode and parses the first length bytes of
+     * the given array into it.
+     * 
+     * @param opCode
+     * @param data
+     * @param length
+     *            length of the datagram
+     * @return parsed packet or null
+     */
+    public static AbstractArtNetPacket createPacketForOpCode(int opCode,
+            byte[] data, int length)
+    {
+        return createPacketForOpCode(opCode, data, length, DEFAULT_METRICS);
+    }
+
+
+    /**
+     * Like {@link #createPacketForOpCode(int, byte[], int)}, but counts
+     * failures in the given metrics.
+     * 
+     * @param opCode
+     * @param data
+     * @param length
+     * @param metrics
+     * @return parsed packet or null
+     */
+    public static AbstractArtNetPacket createPacketForOpCode(int opCode,
+            byte[] data, int length, ParserMetrics metrics)
+    {
+        if (LOG.isTraceEnabled())
+        {
+            LOG.trace("creating packet instance for opcode: 0x{}",
+                    ByteCodec.hex(opCode, 4));
+        }
+        AbstractArtNetPacket packet = null;
+        PacketType type = PacketType.getForOpCode(opCode);
+        if (type != null)
+        {
+            packet = type.createPacket();
+            if (packet != null)
+            {
+                if (!packet.parse(data, length))
+                {
+                    metrics.numParseFailures.increment();
+                    LOG.debug("couldn't parse packet: {}", type);
+                    packet = null;
+                }
+            }
+            else
+            {
+                metrics.numUnsupported.increment();
+                LOG.debug("packet type valid, but not yet supported: {}", type);
+            }
+        }
+        else
+        {
+            metrics.numUnsupported.increment();
+        }
+        return packet;
+    }
+
+
+    /**
+     * @return counters of the parse calls which weren't given metrics of
+     *         their own
+     */
+    public static ParserMetrics getDefaultMetrics()
+    {
+        return DEFAULT_METRICS;
+    }
+
+
+    /**
+     * Parses a datagram received into the given array. Packets wrap the array
+     * they are parsed from, so a datagram not starting at the beginning of
+     * the array is copied into a new one first.
+     * 
+     * @param raw
+     * @param offset
+     *            start of the datagram in the array
+     * @param length
+     *            length of the datagram
+     * @return parsed packet or null
+     */
+    public static AbstractArtNetPacket parse(byte[] raw, int offset, int length)
+    {
+        return parse(raw, offset, length, DEFAULT_METRICS);
+    }
+
+
+    /**
+     * Like {@link #parse(byte[], int, int)}, but counts rejected datagrams in
+     * the given metrics.
+     * 
+     * @param raw
+     * @param offset
+     * @param length
+     * @param metrics
+     * @return parsed packet or null
+     */
+    public static AbstractArtNetPacket parse(byte[] raw, int offset,
+            int length, ParserMetrics metrics)
+    {
+        AbstractArtNetPacket packet = null;
+        if (length > 10)
+        {
+            if (ByteCodec.isHeader(raw, offset))
+            {
+                int opCode = (raw[offset + 8] & 0xff)
+                        | (raw[offset + 9] & 0xff) << 8;
+                if (offset != 0)
+                {
+                    raw = Arrays.copyOfRange(raw, offset, offset + length);
+                }
+                packet = createPacketForOpCode(opCode, raw, length, metrics);
+            }
+            else
+            {
+                metrics.numInvalidHeaders.increment();
+                LOG.debug("invalid header");
+            }
+        }
+        else
+        {
+            metrics.numInvalidLengths.increment();
+            LOG.debug("invalid packet length: {}", length);
+        }
+        return packet;
+    }
+
+
+    /**
+     * Parses a datagram received into the given array into a packet borrowed
+     * from the pool. The datagram is copied into the packet's own buffer, so
+     * the array can be reused right away. The packet needs to be released by
+     * the caller.
+     * 
+     * @param raw
+     * @param length
+     *            length of the datagram
+     * @param pool
+     * @return pooled packet or null
+     */
+    public static AbstractArtNetPacket parse(byte[] raw, int length,
+            PacketPool pool)
+    {
+        return parse(raw, length, pool, DEFAULT_METRICS);
+    }
+
+
+    /**
+     * Like {@link #parse(byte[], int, PacketPool)}, but counts rejected
+     * datagrams in the given metrics.
+     * 
+     * @param raw
+     * @param length
+     * @param pool
+     * @param metrics
+     * @return pooled packet or null
+     */
+    public static AbstractArtNetPacket parse(byte[] raw, int length,
+            PacketPool pool, ParserMetrics metrics)
+    {
         AbstractArtNetPacket packet = null;
-        for (PacketType type : PacketType.values())
+        if (length > 10)
         {
-            if (opCode == type.opCode)
+            if (ByteCodec.isHeader(raw, 0))
             {
-                packet = type.createPacket();
-                if (packet != null)
+                int opCode = (raw[8] & 0xff) | (raw[9] & 0xff) << 8;
+                PacketType type = PacketType.getForOpCode(opCode);
+                if (type != null && type.isSupported())
                 {
-                    packet.parse(data);
-                    break;
+                    packet = pool.acquire(type);
+                    length = Math.min(length, packet.poolBuffer.length);
+                    System.arraycopy(raw, 0, packet.poolBuffer, 0, length);
+                    packet = parsePooled(packet, length, metrics);
                 }
                 else
                 {
-                    logger.fine("packet type valid, but not yet supported: "
-                            + type);
+                    metrics.numUnsupported.increment();
                 }
             }
+            else
+            {
+                metrics.numInvalidHeaders.increment();
+                LOG.debug("invalid header");
+            }
+        }
+        else
+        {
+            metrics.numInvalidLengths.increment();
+            LOG.debug("invalid packet length: {}", length);
         }
         return packet;
     }
 
 
-    private static AbstractArtNetPacket parse(byte[] raw, int offset, int length)
+    /**
+     * Like {@link #parse(ByteBuffer)}, but parses into a packet borrowed from
+     * the pool, which needs to be released by the caller. The buffer's
+     * position and limit are left untouched.
+     * 
+     * @param buffer
+     * @param pool
+     * @return pooled packet or null
+     */
+    public static AbstractArtNetPacket parse(ByteBuffer buffer, PacketPool pool)
+    {
+        return parse(buffer, pool, DEFAULT_METRICS);
+    }
+
+
+    /**
+     * Like {@link #parse(ByteBuffer, PacketPool)}, but counts rejected
+     * datagrams in the given metrics.
+     * 
+     * @param buffer
+     * @param pool
+     * @param metrics
+     * @return pooled packet or null
+     */
+    public static AbstractArtNetPacket parse(ByteBuffer buffer,
+            PacketPool pool, ParserMetrics metrics)
     {
         AbstractArtNetPacket packet = null;
-        ByteUtils data = new ByteUtils(raw);
-        if (data.length > 10)
+        int offset = buffer.position();
+        int length = buffer.remaining();
+        if (length > 10)
         {
-            if (data.compareBytes(AbstractArtNetPacket.HEADER, 0, 8))
+            if (ByteCodec.isHeader(buffer, offset))
             {
-                int opCode = data.getInt16LE(8);
-                packet = createPacketForOpCode(opCode, raw);
+                int opCode = ByteCodec.getInt16LE(buffer, offset + 8);
+                PacketType type = PacketType.getForOpCode(opCode);
+                if (type != null && type.isSupported())
+                {
+                    packet = pool.acquire(type);
+                    length = Math.min(length, packet.poolBuffer.length);
+                    buffer.get(packet.poolBuffer, 0, length);
+                    buffer.position(offset);
+                    packet = parsePooled(packet, length, metrics);
+                }
+                else
+                {
+                    metrics.numUnsupported.increment();
+                }
             }
             else
             {
-                logger.warning("invalid header");
+                metrics.numInvalidHeaders.increment();
+                LOG.debug("invalid header");
             }
         }
         else
         {
-            logger.warning("invalid packet length: " + data.length);
+            metrics.numInvalidLengths.increment();
+            LOG.debug("invalid packet length: {}", length);
         }
         return packet;
     }
@@ -80,4 +303,104 @@ public class ArtNetPacketParser
         return parse(receivedPacket.getData(), receivedPacket.getOffset(),
                 receivedPacket.getLength());
     }
+
+
+    /**
+     * Parses the datagram between the buffer's position and limit. Header and
+     * OpCode are validated in place, so the content is only copied out of the
+     * (usually direct) buffer for packet types which are actually supported.
+     * The buffer's position and limit are left untouched.
+     * 
+     * @param buffer
+     * @return parsed packet or null
+     */
+    public static AbstractArtNetPacket parse(ByteBuffer buffer)
+    {
+        return parse(buffer, (byte[]) null);
+    }
+
+
+    /**
+     * Like {@link #parse(ByteBuffer)}, but copies the datagram into the given
+     * array instead of a newly allocated one. Packets like
+     * {@link ArtDmxPacket} which wrap their data are then only valid until
+     * the array is reused.
+     * 
+     * @param buffer
+     * @param receiveBuffer
+     *            array at least as large as the datagram or null to allocate
+     *            a new one
+     * @return parsed packet or null
+     */
+    public static AbstractArtNetPacket parse(ByteBuffer buffer,
+            byte[] receiveBuffer)
+    {
+        return parse(buffer, receiveBuffer, DEFAULT_METRICS);
+    }
+
+
+    /**
+     * Like {@link #parse(ByteBuffer, byte[])}, but counts rejected datagrams
+     * in the given metrics.
+     * 
+     * @param buffer
+     * @param receiveBuffer
+     * @param metrics
+     * @return parsed packet or null
+     */
+    public static AbstractArtNetPacket parse(ByteBuffer buffer,
+            byte[] receiveBuffer, ParserMetrics metrics)
+    {
+        AbstractArtNetPacket packet = null;
+        int offset = buffer.position();
+        int length = buffer.remaining();
+        if (length > 10)
+        {
+            if (ByteCodec.isHeader(buffer, offset))
+            {
+                int opCode = ByteCodec.getInt16LE(buffer, offset + 8);
+                PacketType type = PacketType.getForOpCode(opCode);
+                if (type != null && type.isSupported())
+                {
+                    byte[] raw = receiveBuffer != null
+                            ? receiveBuffer
+                            : new byte[length];
+                    buffer.get(raw, 0, length);
+                    buffer.position(offset);
+                    packet = createPacketForOpCode(opCode, raw, length,
+                            metrics);
+                }
+                else
+                {
+                    metrics.numUnsupported.increment();
+                }
+            }
+            else
+            {
+                metrics.numInvalidHeaders.increment();
+                LOG.debug("invalid header");
+            }
+        }
+        else
+        {
+            metrics.numInvalidLengths.increment();
+            LOG.debug("invalid packet length: {}", length);
+        }
+        return packet;
+    }
+
+
+    private static AbstractArtNetPacket parsePooled(
+            AbstractArtNetPacket packet, int length, ParserMetrics metrics)
+    {
+        if (!packet.parse(packet.poolBuffer, length))
+        {
+            metrics.numParseFailures.increment();
+            LOG.debug("couldn't parse packet: {}", packet.getType());
+            packet.release();
+            packet = null;
+        }
+        return packet;
+    }
+
 }
@@ -61,12 +61,16 @@ public class ArtPollPacket
 
     /*
      * (non-Javadoc)
-     * @see artnet4j.packets.AbstractArtNetPacket#parse(byte[])
+     * @see artnet4j.packets.AbstractArtNetPacket#parse(byte[], int)
      */
     @Override
-    public boolean parse(byte[] raw)
+    public boolean parse(byte[] raw, int length)
     {
-        setData(raw, ARTPOLL_LENGTH);
+        if (length < 13)
+        {
+            return false;
+        }
+        setData(raw, Math.min(length, ARTPOLL_LENGTH));
         int talk = data.getInt8(12);
         replyOnce = 0 == (talk & 0x02);
         replyDirect = 1 == (talk & 0x01);
@@ -17,10 +17,12 @@ package artnet4j.packets;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import artnet4j.ArtNetServer;
 import artnet4j.NodeReportCode;
 import artnet4j.NodeStyle;
 import artnet4j.PortDescriptor;
@@ -29,9 +31,19 @@ public class ArtPollReplyPacket
         extends AbstractArtNetPacket
 {
 
+    public static final int ARTPOLLREPLY_LENGTH = 239;
+
+    /**
+     * Position and size of the decimal counter in the node report, which is
+     * incremented with every reply.
+     */
+    public static final int REPORT_COUNTER_OFFSET = 115;
+    public static final int REPORT_COUNTER_LENGTH = 4;
+
     private static final Logger LOG = LoggerFactory.getLogger(AbstractArtNetPacket.class);
-    private InetAddress ip;
+    private final byte[] ip = new byte[4];
 
+    private int netSwitch;
     private int subSwitch;
     private int oemCode;
     private int nodeStatus;
@@ -62,6 +74,16 @@ public class ArtPollReplyPacket
     }
 
 
+    /**
+     * @return bind index of the replying device, 0 if the reply is too short
+     *         to carry one
+     */
+    public int getBindIndex()
+    {
+        return data.getLength() > 211 ? data.getInt8(211) : 0;
+    }
+
+
     /**
      * @return the dmxIns
      */
@@ -85,24 +107,38 @@ public class ArtPollReplyPacket
      */
     public InetAddress getIPAddress()
     {
-        InetAddress ipClone = null;
+        InetAddress address = null;
         try
         {
-            ipClone = InetAddress.getByAddress(ip.getAddress());
+            address = InetAddress.getByAddress(ip);
         }
         catch (UnknownHostException e)
         {
+            LOG.warn(e.getMessage(), e);
         }
-        return ipClone;
+        return address;
     }
 
 
     public String getLongName()
     {
+        if (longName == null)
+        {
+            longName = data.getString(44, 64);
+        }
         return longName;
     }
 
 
+    /**
+     * @return the Net part of the node's Port-Addresses
+     */
+    public int getNetSwitch()
+    {
+        return netSwitch;
+    }
+
+
     public int getNodeStatus()
     {
         return nodeStatus;
@@ -123,6 +159,14 @@ public class ArtPollReplyPacket
 
     public PortDescriptor[] getPorts()
     {
+        if (ports == null)
+        {
+            ports = new PortDescriptor[numPorts];
+            for (int i = 0; i < numPorts; i++)
+            {
+                ports[i] = new PortDescriptor(data.getInt8(174 + i));
+            }
+        }
         return ports;
     }
 
@@ -132,12 +176,20 @@ public class ArtPollReplyPacket
      */
     public NodeReportCode getReportCode()
     {
+        if (reportCode == null)
+        {
+            reportCode = NodeReportCode.getForID(data.getString(108, 5));
+        }
         return reportCode;
     }
 
 
     public String getShortName()
     {
+        if (shortName == null)
+        {
+            shortName = data.getString(26, 17);
+        }
         return shortName;
     }
 
@@ -148,42 +200,75 @@ public class ArtPollReplyPacket
     }
 
 
+    /**
+     * Parses the numeric fields and keeps the data for names, report code and
+     * ports, which are only decoded when asked for. The IP and DMX port
+     * arrays are reused, so parsing a recycled packet doesn't allocate. A
+     * packet not owned by a pool copies the datagram, since it may outlive
+     * the receive array it was parsed from.
+     * 
+     * @see artnet4j.packets.AbstractArtNetPacket#parse(byte[], int)
+     */
     @Override
-    public boolean parse(byte[] raw)
+    public boolean parse(byte[] raw, int length)
     {
-        setData(raw);
-        // System.out.println(data.toHex(256));
-        setIPAddress(data.getByteChunk(null, 10, 4));
-        subSwitch = data.getInt16(18);
-        oemCode = data.getInt16(20);
-        nodeStatus = data.getInt8(23);
-        shortName = new String(data.getByteChunk(null, 26, 17));
-        longName = new String(data.getByteChunk(null, 44, 64));
-        reportCode =
-                NodeReportCode.getForID(new String(data.getByteChunk(null, 108,
-                        5)));
-        numPorts = data.getInt16(172);
-        ports = new PortDescriptor[numPorts];
-        for (int i = 0; i < numPorts; i++)
+        if (length <= 200)
         {
-            ports[i] = new PortDescriptor(data.getInt8(174 + i));
+            return false;
         }
-        dmxIns = data.getByteChunk(null, 186, 4);
-        dmxOuts = data.getByteChunk(null, 190, 4);
+        length = Math.min(length, ARTPOLLREPLY_LENGTH);
+        if (pool == null)
+        {
+            raw = Arrays.copyOf(raw, length);
+        }
+        setData(raw, length);
+        data.getByteChunk(ip, 10, 4);
+        netSwitch = data.getInt8(18) & 0x7f;
+        subSwitch = data.getInt8(19) & 0x0f;
+        oemCode = data.getInt16(20);
+        nodeStatus = data.getInt8(23);
+        shortName = null;
+        longName = null;
+        reportCode = null;
+        numPorts = Math.min(data.getInt16(172), 4);
+        ports = null;
+        dmxIns = data.getByteChunk(
+                dmxIns != null && dmxIns.length == 4 ? dmxIns : null, 186, 4);
+        dmxOuts = data.getByteChunk(
+                dmxOuts != null && dmxOuts.length == 4 ? dmxOuts : null, 190, 4);
         for (int i = 0; i < 4; i++)
         {
             dmxIns[i] &= 0x0f;
             dmxOuts[i] &= 0x0f;
         }
-        int styleID = data.getInt8(200);
-        for (NodeStyle s : NodeStyle.values())
+        nodeStyle = NodeStyle.getForID(data.getInt8(200));
+        return true;
+    }
+
+
+    /**
+     * Allocates and initializes the data of a packet which is encoded rather
+     * than parsed.
+     */
+    private void prepareData()
+    {
+        if (data == null)
         {
-            if (styleID == s.getStyleID())
-            {
-                nodeStyle = s;
-            }
+            setData(new byte[ARTPOLLREPLY_LENGTH]);
+            setHeader();
+            data.setInt16LE(ArtNetServer.DEFAULT_PORT, 14);
         }
-        return true;
+    }
+
+
+    /**
+     * @param index
+     *            bind index of the node, 1 for the root device
+     */
+    public void setBindIndex(int index)
+    {
+        prepareData();
+        data.setInt8(index, 211);
     }
 
 
@@ -193,7 +278,9 @@ public class ArtPollReplyPacket
      */
     public void setDmxIns(byte[] dmxIns)
     {
+        prepareData();
         this.dmxIns = dmxIns;
+        data.setByteChunk(dmxIns, 186, Math.min(dmxIns.length, 4));
     }
 
 
@@ -203,21 +290,111 @@ public class ArtPollReplyPacket
      */
     public void setDmxOuts(byte[] dmxOuts)
     {
+        prepareData();
         this.dmxOuts = dmxOuts;
+        data.setByteChunk(dmxOuts, 190, Math.min(dmxOuts.length, 4));
     }
 
 
-    private void setIPAddress(byte[] address)
+    /**
+     * Sets the node's IP, which is also used as bind IP.
+     * 
+     * @param address
+     *            IPv4 address
+     */
+    public void setIPAddress(InetAddress address)
     {
-        try
+        prepareData();
+        byte[] addr = address.getAddress();
+        if (addr.length == 4)
         {
-            ip = InetAddress.getByAddress(address);
-            LOG.trace("setting ip address: {}", ip);
+            System.arraycopy(addr, 0, ip, 0, 4);
+            data.setByteChunk(ip, 10, 4);
+            data.setByteChunk(ip, 207, 4);
         }
-        catch (UnknownHostException e)
+    }
+
+
+    /**
+     * @param longName
+     */
+    public void setLongName(String longName)
+    {
+        prepareData();
+        data.setString(longName, 44, 64);
+        this.longName = null;
+    }
+
+
+    /**
+     * @param mac
+     *            the 6 byte MAC address
+     */
+    public void setMacAddress(byte[] mac)
+    {
+        prepareData();
+        data.setByteChunk(mac, 201, Math.min(mac.length, 6));
+    }
+
+
+    /**
+     * @param netSwitch
+     */
+    public void setNetSwitch(int netSwitch)
+    {
+        prepareData();
+        this.netSwitch = netSwitch & 0x7f;
+        data.setInt8(this.netSwitch, 18);
+    }
+
+
+    /**
+     * @param nodeStatus
+     */
+    public void setNodeStatus(int nodeStatus)
+    {
+        prepareData();
+        this.nodeStatus = nodeStatus;
+        data.setInt8(nodeStatus, 23);
+    }
+
+
+    /**
+     * @param nodeStyle
+     */
+    public void setNodeStyle(NodeStyle nodeStyle)
+    {
+        prepareData();
+        this.nodeStyle = nodeStyle;
+        data.setInt8(nodeStyle.getStyleID(), 200);
+    }
+
+
+    /**
+     * @param oemCode
+     */
+    public void setOEMCode(int oemCode)
+    {
+        prepareData();
+        this.oemCode = oemCode;
+        data.setInt16(oemCode, 20);
+    }
+
+
+    /**
+     * @param ports
+     *            descriptors of up to 4 ports
+     */
+    public void setPorts(PortDescriptor[] ports)
+    {
+        prepareData();
+        numPorts = Math.min(ports.length, 4);
+        data.setInt16(numPorts, 172);
+        for (int i = 0; i < 4; i++)
         {
-            LOG.warn(e.getMessage(), e);
+            data.setInt8(i < numPorts ? ports[i].getID() : 0, 174 + i);
         }
+        this.ports = null;
     }
 
 
@@ -227,6 +404,59 @@ public class ArtPollReplyPacket
      */
     public void setReportCode(NodeReportCode reportCode)
     {
+        prepareData();
         this.reportCode = reportCode;
+        data.setString(reportCode.id + " [0000] " + reportCode.description,
+                108, 64);
+    }
+
+
+    /**
+     * Updates the decimal counter of the node report set with
+     * {@link #setReportCode(NodeReportCode)} in place.
+     * 
+     * @param count
+     */
+    public void setReportCounter(int count)
+    {
+        for (int i = REPORT_COUNTER_LENGTH - 1; i >= 0; i--)
+        {
+            data.setInt8('0' + count % 10, REPORT_COUNTER_OFFSET + i);
+            count /= 10;
+        }
+    }
+
+
+    /**
+     * @param shortName
+     */
+    public void setShortName(String shortName)
+    {
+        prepareData();
+        data.setString(shortName, 26, 18);
+        this.shortName = null;
+    }
+
+
+    /**
+     * Sets the Status2 flags, e.g. 0x08 for 15 bit Port-Address support.
+     * 
+     * @param status
+     */
+    public void setStatus2(int status)
+    {
+        prepareData();
+        data.setInt8(status, 212);
+    }
+
+
+    /**
+     * @param subSwitch
+     */
+    public void setSubSwitch(int subSwitch)
+    {
+        prepareData();
+        this.subSwitch = subSwitch & 0x0f;
+        data.setInt8(this.subSwitch, 19);
     }
 }
@@ -0,0 +1,59 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.packets;
+
+/**
+ * ArtSync is broadcast by a controller after all ArtDmx packets of a frame
+ * have been sent, so receivers can output all universes at the same time.
+ */
+public class ArtSyncPacket
+        extends AbstractArtNetPacket
+{
+
+    private static final int ARTSYNC_LENGTH = 14;
+
+
+    public ArtSyncPacket()
+    {
+        super(PacketType.ART_SYNC);
+        setData(new byte[ARTSYNC_LENGTH]);
+        setHeader();
+        setProtocol();
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.packets.AbstractArtNetPacket#parse(byte[], int)
+     */
+    @Override
+    public boolean parse(byte[] raw, int length)
+    {
+        setData(raw, Math.min(length, ARTSYNC_LENGTH));
+        return true;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.packets.AbstractArtNetPacket#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return type.toString();
+    }
+}
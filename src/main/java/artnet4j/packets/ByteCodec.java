@@ -0,0 +1,513 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+package artnet4j.packets;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Packet data accessor backed by a {@link ByteBuffer}, replacing
+ * {@link ByteUtils}. All accessors use absolute indices bounds checked against
+ * the codec's length, which is kept as the buffer's limit. A codec can be
+ * re-pointed at another array or buffer, which only allocates a new buffer
+ * view if the array actually changes. Works on heap and direct buffers alike;
+ * multi byte values are read with a single bounds checked access instead of
+ * byte wise shifting.
+ */
+public final class ByteCodec
+{
+    /**
+     * The Art-Net packet ID "Art-Net\0" as big endian long.
+     */
+    public static final long HEADER = 0x4172742d4e657400L;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private byte[] array;
+    private ByteBuffer buffer;
+    private int length;
+
+
+    public ByteCodec(byte[] data)
+    {
+        wrap(data);
+    }
+
+
+    public ByteCodec(ByteBuffer buffer)
+    {
+        wrap(buffer);
+    }
+
+
+    /*
+     * Static methods
+     */
+
+    /**
+     * Appends the given number of hex digits (upper case, zero padded) of the
+     * value to the builder.
+     * 
+     * @param builder
+     * @param value
+     * @param digits
+     * @return the builder
+     */
+    public static StringBuilder appendHex(StringBuilder builder, int value,
+            int digits)
+    {
+        for (int i = digits - 1; i >= 0; i--)
+        {
+            builder.append(i < 8 ? HEX_DIGITS[(value >>> (i << 2)) & 0xf]
+                    : '0');
+        }
+        return builder;
+    }
+
+
+    /**
+     * Reads a 16bit int (Little Endian, LSB first) at the given offset,
+     * regardless of the buffer's byte order.
+     * 
+     * @param buffer
+     * @param offset
+     * @return
+     */
+    public static int getInt16LE(ByteBuffer buffer, int offset)
+    {
+        short value = buffer.getShort(offset);
+        if (buffer.order() == ByteOrder.BIG_ENDIAN)
+        {
+            value = Short.reverseBytes(value);
+        }
+        return value & 0xffff;
+    }
+
+
+    /**
+     * @param value
+     * @param digits
+     * @return upper case hex string, zero padded to the number of digits
+     */
+    public static String hex(int value, int digits)
+    {
+        return appendHex(new StringBuilder(digits), value, digits).toString();
+    }
+
+
+    /**
+     * Checks for the Art-Net packet ID at the given offset with a single
+     * 64bit compare, reading the array directly without wrapping it.
+     * 
+     * @param raw
+     * @param offset
+     * @return
+     */
+    public static boolean isHeader(byte[] raw, int offset)
+    {
+        if (offset < 0 || raw.length - offset < 8)
+        {
+            return false;
+        }
+        long value = (raw[offset] & 0xffL) << 56
+                | (raw[offset + 1] & 0xffL) << 48
+                | (raw[offset + 2] & 0xffL) << 40
+                | (raw[offset + 3] & 0xffL) << 32
+                | (raw[offset + 4] & 0xffL) << 24
+                | (raw[offset + 5] & 0xffL) << 16
+                | (raw[offset + 6] & 0xffL) << 8
+                | (raw[offset + 7] & 0xffL);
+        return value == HEADER;
+    }
+
+
+    /**
+     * Checks for the Art-Net packet ID at the given offset with a single
+     * 64bit compare, regardless of the buffer's byte order.
+     * 
+     * @param buffer
+     * @param offset
+     * @return
+     */
+    public static boolean isHeader(ByteBuffer buffer, int offset)
+    {
+        if (buffer.limit() - offset < 8)
+        {
+            return false;
+        }
+        long value = buffer.getLong(offset);
+        if (buffer.order() == ByteOrder.LITTLE_ENDIAN)
+        {
+            value = Long.reverseBytes(value);
+        }
+        return value == HEADER;
+    }
+
+
+    /**
+     * @return the backing array, or null if the codec wraps a direct buffer
+     */
+    public byte[] getBytes()
+    {
+        return array;
+    }
+
+
+    /**
+     * Returns the underlying big endian buffer, limited to the codec's length.
+     * Its position and limit must not be changed, use
+     * {@link ByteBuffer#duplicate()} to get an independent view.
+     * 
+     * @return
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+
+    /**
+     * Copies a chunk of the data into the given array, which is allocated if
+     * null.
+     * 
+     * @param target
+     * @param offset
+     * @param len
+     * @return the target array
+     */
+    public byte[] getByteChunk(byte[] target, int offset, int len)
+    {
+        if (target == null)
+        {
+            target = new byte[len];
+        }
+        if (array != null)
+        {
+            checkIndex(offset, len);
+            System.arraycopy(array, offset, target, 0, len);
+        }
+        else
+        {
+            for (int i = 0; i < len; i++)
+            {
+                target[i] = buffer.get(offset + i);
+            }
+        }
+        return target;
+    }
+
+
+    /**
+     * Gets a 16bit int (Big Endian, MSB first) at the given offset.
+     * 
+     * @param offset
+     * @return
+     */
+    public int getInt16(int offset)
+    {
+        return buffer.getShort(offset) & 0xffff;
+    }
+
+
+    /**
+     * Gets a 16bit int (Little Endian, LSB first) at the given offset.
+     * 
+     * @param offset
+     * @return
+     */
+    public int getInt16LE(int offset)
+    {
+        return Short.reverseBytes(buffer.getShort(offset)) & 0xffff;
+    }
+
+
+    /**
+     * Gets a 32bit int (Big Endian, MSB first) at the given offset.
+     * 
+     * @param offset
+     * @return
+     */
+    public int getInt32(int offset)
+    {
+        return buffer.getInt(offset);
+    }
+
+
+    /**
+     * Gets a 32bit int (Little Endian, LSB first) at the given offset.
+     * 
+     * @param offset
+     * @return
+     */
+    public int getInt32LE(int offset)
+    {
+        return Integer.reverseBytes(buffer.getInt(offset));
+    }
+
+
+    /**
+     * Gets an unsigned 8bit int at the given offset.
+     * 
+     * @param offset
+     * @return
+     */
+    public int getInt8(int offset)
+    {
+        return buffer.get(offset) & 0xff;
+    }
+
+
+    /**
+     * @return the number of usable bytes
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+
+    /**
+     * Decodes an ASCII string field of fixed length.
+     * 
+     * @param offset
+     * @param len
+     * @return
+     */
+    public String getString(int offset, int len)
+    {
+        if (array != null)
+        {
+            checkIndex(offset, len);
+            return new String(array, offset, len, StandardCharsets.US_ASCII);
+        }
+        return new String(getByteChunk(null, offset, len),
+                StandardCharsets.US_ASCII);
+    }
+
+
+    /**
+     * Compares the data at the given offset with the Art-Net packet ID.
+     * 
+     * @param offset
+     * @return
+     */
+    public boolean isHeader(int offset)
+    {
+        return length - offset >= 8 && buffer.getLong(offset) == HEADER;
+    }
+
+
+    /**
+     * Copies a chunk of bytes into the data at the given offset.
+     * 
+     * @param source
+     * @param offset
+     * @param len
+     */
+    public void setByteChunk(byte[] source, int offset, int len)
+    {
+        if (array != null)
+        {
+            checkIndex(offset, len);
+            System.arraycopy(source, 0, array, offset, len);
+        }
+        else
+        {
+            for (int i = 0; i < len; i++)
+            {
+                buffer.put(offset + i, source[i]);
+            }
+        }
+    }
+
+
+    /**
+     * @param val
+     * @param offset
+     */
+    public void setInt16(int val, int offset)
+    {
+        buffer.putShort(offset, (short) val);
+    }
+
+
+    /**
+     * @param val
+     * @param offset
+     */
+    public void setInt16LE(int val, int offset)
+    {
+        buffer.putShort(offset, Short.reverseBytes((short) val));
+    }
+
+
+    /**
+     * @param val
+     * @param offset
+     */
+    public void setInt32(int val, int offset)
+    {
+        buffer.putInt(offset, val);
+    }
+
+
+    /**
+     * @param val
+     * @param offset
+     */
+    public void setInt32LE(int val, int offset)
+    {
+        buffer.putInt(offset, Integer.reverseBytes(val));
+    }
+
+
+    /**
+     * @param val
+     * @param offset
+     */
+    public void setInt8(int val, int offset)
+    {
+        buffer.put(offset, (byte) val);
+    }
+
+
+    /**
+     * Encodes a string into an ASCII field of fixed length. The string is
+     * truncated to leave room for at least one terminating zero, the rest of
+     * the field is zeroed.
+     * 
+     * @param value
+     * @param offset
+     * @param len
+     */
+    public void setString(String value, int offset, int len)
+    {
+        checkIndex(offset, len);
+        int n = Math.min(value.length(), len - 1);
+        for (int i = 0; i < len; i++)
+        {
+            buffer.put(offset + i, i < n ? (byte) value.charAt(i) : 0);
+        }
+    }
+
+
+    /**
+     * Restricts the usable bytes to the first length bytes of the data, e.g.
+     * to ignore trailing bytes of a received datagram.
+     * 
+     * @param length
+     */
+    public void setLength(int length)
+    {
+        if (length < 0 || length > buffer.capacity())
+        {
+            throw new IndexOutOfBoundsException("length " + length
+                    + " exceeds " + buffer.capacity());
+        }
+        buffer.limit(length);
+        this.length = length;
+    }
+
+
+    /**
+     * Hex dump of the first bytes with an ASCII column, 16 bytes per line.
+     * 
+     * @param len
+     * @return
+     */
+    public String toHex(int len)
+    {
+        StringBuilder result = new StringBuilder(len * 4 + 16);
+        StringBuilder ascii = new StringBuilder(20);
+        for (int i = 0; i < len; i++)
+        {
+            if (0 == i % 16)
+            {
+                appendHex(result, i, 4).append(": ");
+                ascii.setLength(0);
+                ascii.append(' ');
+            }
+            byte b = buffer.get(i);
+            appendHex(result, b, 2);
+            ascii.append(b > 0x1f && b < 0x7f ? (char) b : '.');
+            if (7 == i % 8)
+            {
+                result.append(' ');
+                ascii.append(' ');
+            }
+            if (15 == i % 16)
+            {
+                result.append(ascii).append('\n');
+            }
+            else
+            {
+                result.append(' ');
+            }
+        }
+        return result.toString();
+    }
+
+
+    /**
+     * Points the codec at a different array. The buffer is only replaced if
+     * the array changes, so re-wrapping the same array doesn't allocate.
+     * 
+     * @param data
+     * @return itself
+     */
+    public ByteCodec wrap(byte[] data)
+    {
+        if (data != array || buffer == null)
+        {
+            array = data;
+            buffer = ByteBuffer.wrap(data);
+        }
+        else
+        {
+            buffer.clear();
+        }
+        length = data.length;
+        return this;
+    }
+
+
+    /**
+     * Points the codec at the content of the given buffer between position
+     * and limit, e.g. a direct receive buffer. The buffer itself is left
+     * untouched, the codec works on a slice of it.
+     * 
+     * @param data
+     * @return itself
+     */
+    public ByteCodec wrap(ByteBuffer data)
+    {
+        buffer = data.slice().order(ByteOrder.BIG_ENDIAN);
+        array = buffer.hasArray() && buffer.arrayOffset() == 0
+                ? buffer.array() : null;
+        length = buffer.limit();
+        return this;
+    }
+
+
+    private void checkIndex(int offset, int len)
+    {
+        if (offset < 0 || len < 0 || offset + len > length)
+        {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length "
+                    + len + ", limit " + length);
+        }
+    }
+}
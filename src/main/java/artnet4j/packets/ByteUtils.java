@@ -15,6 +15,10 @@
 
 package artnet4j.packets;
 
+/**
+ * @deprecated replaced by {@link ByteCodec}, kept for compatibility
+ */
+@Deprecated
 public class ByteUtils
 {
 
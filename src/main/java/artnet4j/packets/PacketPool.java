@@ -0,0 +1,132 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.packets;
+
+/**
+ * Pool of recyclable packets, kept per {@link PacketType}. Each packet owns
+ * a receive buffer of the pool's buffer size, which received datagrams are
+ * copied into, so a packet stays valid while the receive buffer is reused.
+ * Packets are handed out with a reference count of 1 and come back to the
+ * pool on their last {@link AbstractArtNetPacket#release()}. If a type's
+ * pool runs dry a new packet is created, which will be dropped again on
+ * release if the pool is already full. Once warmed up, receiving doesn't
+ * create any garbage.
+ */
+public class PacketPool
+{
+
+    public static final int DEFAULT_SIZE = 16;
+
+    protected final int maxPerType;
+    protected final int bufferSize;
+
+    private final AbstractArtNetPacket[][] packets;
+    private final int[] available;
+    private int numCreated;
+
+
+    /**
+     * @param maxPerType
+     *            maximum number of idle packets kept per type
+     * @param bufferSize
+     *            size of the packet's receive buffers, needs to be at least
+     *            the size of the largest datagram
+     */
+    public PacketPool(int maxPerType, int bufferSize)
+    {
+        this.maxPerType = maxPerType;
+        this.bufferSize = bufferSize;
+        int numTypes = PacketType.values().length;
+        packets = new AbstractArtNetPacket[numTypes][maxPerType];
+        available = new int[numTypes];
+    }
+
+
+    /**
+     * @param type
+     * @return a packet of the given type or null, if the type isn't supported
+     */
+    public AbstractArtNetPacket acquire(PacketType type)
+    {
+        AbstractArtNetPacket packet = null;
+        int index = type.ordinal();
+        synchronized (this)
+        {
+            if (available[index] > 0)
+            {
+                packet = packets[index][--available[index]];
+                packets[index][available[index]] = null;
+            }
+        }
+        if (packet == null)
+        {
+            packet = type.createPacket();
+            if (packet == null)
+            {
+                return null;
+            }
+            packet.pool = this;
+            packet.poolBuffer = new byte[bufferSize];
+            synchronized (this)
+            {
+                numCreated++;
+            }
+        }
+        packet.resetRefCount(1);
+        return packet;
+    }
+
+
+    /**
+     * @return the size of each packet's receive buffer in bytes
+     */
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+
+    /**
+     * @param type
+     * @return number of idle packets of the type held by the pool
+     */
+    public synchronized int getNumAvailable(PacketType type)
+    {
+        return available[type.ordinal()];
+    }
+
+
+    /**
+     * @return number of packets created by the pool so far
+     */
+    public synchronized int getNumCreated()
+    {
+        return numCreated;
+    }
+
+
+    /**
+     * @param packet
+     */
+    synchronized void recycle(AbstractArtNetPacket packet)
+    {
+        int index = packet.type.ordinal();
+        if (available[index] < maxPerType)
+        {
+            packets[index][available[index]++] = packet;
+        }
+    }
+}
@@ -15,13 +15,16 @@
 
 package artnet4j.packets;
 
+import java.util.function.Supplier;
+
 public enum PacketType
 {
 
-    ART_POLL(0x2000, ArtPollPacket.class),
+    ART_POLL(0x2000, ArtPollPacket::new),
     ART_POLL_REPLY(0x2100,
-            ArtPollReplyPacket.class),
-    ART_OUTPUT(0x5000, null),
+            ArtPollReplyPacket::new),
+    ART_OUTPUT(0x5000, ArtDmxPacket::new),
+    ART_SYNC(0x5200, ArtSyncPacket::new),
     ART_ADDRESS(
             0x6000, null),
     ART_INPUT(0x7000, null),
@@ -45,40 +48,80 @@ public enum PacketType
     ART_IP_PROG(0xf800, null),
     ART_IP_PROG_REPLY(0xf900, null);
 
+    /**
+     * Types indexed by the high byte of their OpCode. All OpCodes apart from
+     * the video ones, which aren't supported anyway, have a unique high byte.
+     */
+    private static final PacketType[] TYPES = new PacketType[0x100];
+    private static final PacketType[] ALL_TYPES = PacketType.values();
+    static
+    {
+        for (PacketType type : ALL_TYPES)
+        {
+            int index = type.opCode >> 8;
+            if (TYPES[index] == null)
+            {
+                TYPES[index] = type;
+            }
+        }
+    }
+
     public final int opCode;
-    private final Class<? extends AbstractArtNetPacket> packetClass;
+    private final Supplier<AbstractArtNetPacket> factory;
 
 
     /**
      * @param code
-     * @param clazz
+     * @param factory
      */
-    private PacketType(int code, Class<? extends AbstractArtNetPacket> clazz)
+    private PacketType(int code, Supplier<AbstractArtNetPacket> factory)
     {
         opCode = code;
-        packetClass = clazz;
+        this.factory = factory;
     }
 
 
-    public AbstractArtNetPacket createPacket()
+    /*
+     * Static methods
+     */
+
+    /**
+     * @param opCode
+     * @return the type for the OpCode or null, if unknown
+     */
+    public static PacketType getForOpCode(int opCode)
     {
-        AbstractArtNetPacket p = null;
-        if (packetClass != null)
+        PacketType type = TYPES[opCode >> 8 & 0xff];
+        if (type != null && type.opCode != opCode)
         {
-            try
+            type = null;
+            for (PacketType t : ALL_TYPES)
             {
-                p = packetClass.newInstance();
-            }
-            catch (InstantiationException e)
-            {
-                e.printStackTrace();
-            }
-            catch (IllegalAccessException e)
-            {
-                e.printStackTrace();
+                if (t.opCode == opCode)
+                {
+                    type = t;
+                    break;
+                }
             }
         }
-        return p;
+        return type;
     }
 
+
+    /**
+     * @return a new packet instance or null, if the type isn't supported
+     */
+    public AbstractArtNetPacket createPacket()
+    {
+        return factory != null ? factory.get() : null;
+    }
+
+
+    /**
+     * @return true, if a packet implementation exists for this type
+     */
+    public boolean isSupported()
+    {
+        return factory != null;
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.packets;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of datagrams rejected by {@link ArtNetPacketParser}. Each server
+ * passes its own instance to the parser, so the counts of several servers in
+ * one process are kept apart.
+ */
+public class ParserMetrics
+{
+
+    final LongAdder numInvalidHeaders = new LongAdder();
+    final LongAdder numInvalidLengths = new LongAdder();
+    final LongAdder numParseFailures = new LongAdder();
+    final LongAdder numUnsupported = new LongAdder();
+
+
+    /**
+     * @return number of datagrams without the Art-Net header
+     */
+    public long getNumInvalidHeaders()
+    {
+        return numInvalidHeaders.sum();
+    }
+
+
+    /**
+     * @return number of datagrams too short to hold an OpCode
+     */
+    public long getNumInvalidLengths()
+    {
+        return numInvalidLengths.sum();
+    }
+
+
+    /**
+     * @return number of packets of supported types which couldn't be parsed
+     */
+    public long getNumParseFailures()
+    {
+        return numParseFailures.sum();
+    }
+
+
+    /**
+     * @return number of packets with unknown or unsupported OpCodes
+     */
+    public long getNumUnsupported()
+    {
+        return numUnsupported.sum();
+    }
+
+
+    /**
+     * Resets all counters.
+     */
+    public void reset()
+    {
+        numInvalidHeaders.reset();
+        numInvalidLengths.reset();
+        numParseFailures.reset();
+        numUnsupported.reset();
+    }
+}
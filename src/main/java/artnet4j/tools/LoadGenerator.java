@@ -0,0 +1,281 @@
+/*
+ * This file is part of artnet4j.
+ * Copyright 2009 Karsten Schmidt (PostSpectacular Ltd.)
+ * artnet4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * artnet4j is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with artnet4j. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package artnet4j.tools;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import artnet4j.ArtNet;
+import artnet4j.ArtNetChannelServer;
+import artnet4j.ArtNetNode;
+import artnet4j.ArtNetServer;
+import artnet4j.ArtNetServerConfig;
+import artnet4j.DmxOutputScheduler;
+import artnet4j.DmxUniverse;
+import artnet4j.DmxUniverseConfig;
+import artnet4j.LatencyHistogram;
+import artnet4j.events.ArtDmxListener;
+import artnet4j.packets.ArtDmxPacket;
+
+/**
+ * Load test for a host, sending N universes at M Hz through an
+ * {@link ArtNet} output scheduler and receiving them back on a second server
+ * instance. Every second it reports packet rates, loss, reordering detected
+ * via the ArtDmx sequence byte and the end-to-end latency, measured with a
+ * send timestamp carried in the first 8 DMX channels.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * java -cp artnet4j.jar:slf4j-api.jar artnet4j.tools.LoadGenerator [options]
+ *   -n universes    number of universes (16)
+ *   -r rate         frames per second (44)
+ *   -d seconds      test duration (10)
+ *   -t address      local address to send to and receive on (127.0.0.1)
+ *   -p port         receive port, the sender uses port + 1 (6454)
+ *   -e engine       receive engine: socket or channel (socket)
+ *   -w workers      receive pipeline workers (0)
+ *   -b bytes        kernel receive buffer size, 0 for the OS default (0)
+ * </pre>
+ */
+public class LoadGenerator
+        implements ArtDmxListener
+{
+
+    /**
+     * Universe writing the current time into its first 8 channels whenever a
+     * frame packet is encoded, and keeping itself due for sending.
+     */
+    private class StampedUniverse
+            extends DmxUniverse
+    {
+
+        StampedUniverse(ArtNetNode node, DmxUniverseConfig config)
+        {
+            super(node, config);
+        }
+
+
+        @Override
+        public ArtDmxPacket getFramePacket(int sequenceID)
+        {
+            ArtDmxPacket packet = super.getFramePacket(sequenceID);
+            byte[] data = packet.getData();
+            long now = System.nanoTime();
+            for (int i = 0; i < 8; i++)
+            {
+                data[ArtDmxPacket.DMX_OFFSET + i] = (byte) (now >>> (56 - i * 8));
+            }
+            markDirty();
+            numSent.incrementAndGet();
+            return packet;
+        }
+    }
+
+    protected int numUniverses = 16;
+    protected int frameRate = DmxOutputScheduler.DEFAULT_FRAME_RATE;
+    protected int duration = 10;
+    protected InetAddress address;
+    protected int port = ArtNetServer.DEFAULT_PORT;
+    protected boolean isChannelEngine;
+    protected int numWorkers;
+    protected int socketReceiveBufferSize;
+
+    protected final AtomicLong numSent = new AtomicLong();
+    protected final AtomicLong numReceived = new AtomicLong();
+    protected final AtomicLong numReordered = new AtomicLong();
+    protected final AtomicLong numGaps = new AtomicLong();
+    protected final LatencyHistogram latency = new LatencyHistogram();
+    protected final LatencyHistogram totalLatency = new LatencyHistogram();
+
+    private int[] lastSequence;
+
+
+    /*
+     * Static methods
+     */
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        LoadGenerator generator = new LoadGenerator();
+        generator.address = InetAddress.getByName("127.0.0.1");
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+            String value = args[i + 1];
+            switch (args[i])
+            {
+                case "-n":
+                    generator.numUniverses = Integer.parseInt(value);
+                    break;
+                case "-r":
+                    generator.frameRate = Integer.parseInt(value);
+                    break;
+                case "-d":
+                    generator.duration = Integer.parseInt(value);
+                    break;
+                case "-t":
+                    generator.address = InetAddress.getByName(value);
+                    break;
+                case "-p":
+                    generator.port = Integer.parseInt(value);
+                    break;
+                case "-e":
+                    generator.isChannelEngine = "channel".equals(value);
+                    break;
+                case "-w":
+                    generator.numWorkers = Integer.parseInt(value);
+                    break;
+                case "-b":
+                    generator.socketReceiveBufferSize = Integer.parseInt(value);
+                    break;
+                default:
+                    System.err.println("unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        generator.run();
+        System.exit(0);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see artnet4j.events.ArtDmxListener#artDmxReceived(artnet4j.packets.ArtDmxPacket)
+     */
+    @Override
+    public void artDmxReceived(ArtDmxPacket packet)
+    {
+        long now = System.nanoTime();
+        long sent = 0;
+        for (int i = 0; i < 8; i++)
+        {
+            sent = sent << 8 | packet.getChannel(i);
+        }
+        latency.record(now - sent);
+        numReceived.incrementAndGet();
+
+        // universes are handled by a single receive thread or worker
+        int universe = packet.getPortAddress();
+        int sequence = packet.getSequenceID();
+        int last = lastSequence[universe];
+        lastSequence[universe] = sequence;
+        if (last != 0)
+        {
+            int distance = (sequence - last + 255) % 255;
+            if (distance == 0 || distance > 127)
+            {
+                numReordered.incrementAndGet();
+                lastSequence[universe] = last;
+            }
+            else if (distance > 1)
+            {
+                numGaps.incrementAndGet();
+            }
+        }
+    }
+
+
+    private ArtNetServer createReceiver()
+    {
+        ArtNetServer server = isChannelEngine
+                ? new ArtNetChannelServer(port, port)
+                : new ArtNetServer(port, port);
+        server.setReceiveWorkers(numWorkers);
+        ArtNetServerConfig config = new ArtNetServerConfig();
+        config.socketReceiveBufferSize = socketReceiveBufferSize;
+        server.setConfig(config);
+        return server;
+    }
+
+
+    private void report(String label, long sent, long received, double seconds,
+            LatencyHistogram histogram)
+    {
+        System.out.printf(
+                "%s sent=%.0f/s received=%.0f/s lost=%d reordered=%d gaps=%d latency[us] %s%n",
+                label, sent / seconds, received / seconds,
+                numSent.get() - numReceived.get(), numReordered.get(),
+                numGaps.get(), histogram);
+    }
+
+
+    /**
+     * Runs the test for the configured duration and prints the results.
+     *
+     * @throws Exception
+     */
+    public void run()
+            throws Exception
+    {
+        lastSequence = new int[numUniverses];
+
+        ArtNet receiver = new ArtNet();
+        receiver.init(createReceiver());
+        receiver.addDmxListener(0, numUniverses - 1, this);
+        receiver.start(address);
+
+        ArtNet sender = new ArtNet();
+        sender.init(new ArtNetServer(port + 1, port));
+        sender.start(address);
+        ArtNetNode node = new ArtNetNode();
+        node.setIPAddress(address);
+        DmxOutputScheduler scheduler = sender.getOutputScheduler();
+        for (int i = 0; i < numUniverses; i++)
+        {
+            DmxUniverseConfig config = new DmxUniverseConfig();
+            config.id = "load" + i;
+            config.universeID = i;
+            config.numDmxChannels = 512;
+            scheduler.addUniverse(new StampedUniverse(node, config));
+        }
+        scheduler.setFrameRate(frameRate);
+
+        System.out.printf("sending %d universes at %d Hz to %s:%d for %d s%n",
+                numUniverses, frameRate, address.getHostAddress(), port,
+                duration);
+        long start = System.nanoTime();
+        sender.startOutput();
+        long lastSent = 0;
+        long lastReceived = 0;
+        for (int t = 1; t <= duration; t++)
+        {
+            Thread.sleep(1000);
+            long sent = numSent.get();
+            long received = numReceived.get();
+            LatencyHistogram interval = latency.snapshotAndReset();
+            totalLatency.add(interval);
+            report(String.format("%4ds", t), sent - lastSent,
+                    received - lastReceived, 1, interval);
+            lastSent = sent;
+            lastReceived = received;
+        }
+        scheduler.stop();
+        // let packets in flight arrive
+        Thread.sleep(200);
+        double seconds = (System.nanoTime() - start)
+                / (double) TimeUnit.SECONDS.toNanos(1);
+        totalLatency.add(latency.snapshotAndReset());
+        report("total", numSent.get(), numReceived.get(), seconds,
+                totalLatency);
+        System.out.printf("scheduler: frames=%d late=%d missed=%d%n",
+                scheduler.getNumFrames(), scheduler.getNumLateFrames(),
+                scheduler.getNumMissedFrames());
+        sender.stop();
+        receiver.stop();
+    }
+}